@@ -0,0 +1,29 @@
+package ru.mawshu.movietracker.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.mawshu.movietracker.dto.LibraryImportRequest;
+import ru.mawshu.movietracker.dto.LibraryImportResponse;
+import ru.mawshu.movietracker.service.LibraryImportService;
+
+@RestController
+@RequestMapping("/api/users/{userId}/library:import")
+public class LibraryImportController {
+
+    private final LibraryImportService libraryImportService;
+
+    public LibraryImportController(LibraryImportService libraryImportService) {
+        this.libraryImportService = libraryImportService;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public LibraryImportResponse importJson(@PathVariable Long userId, @Valid @RequestBody LibraryImportRequest request) {
+        return libraryImportService.importEntries(userId, request.getEntries());
+    }
+
+    @PostMapping(consumes = "text/csv")
+    public LibraryImportResponse importCsv(@PathVariable Long userId, @RequestBody String csv) {
+        return libraryImportService.importCsv(userId, csv);
+    }
+}
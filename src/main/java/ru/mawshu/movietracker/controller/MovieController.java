@@ -7,11 +7,17 @@ import ru.mawshu.movietracker.dto.MovieSearchRequest;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.mawshu.movietracker.dto.BatchImportRequest;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
 import ru.mawshu.movietracker.dto.MovieSearchItem;
 import ru.mawshu.movietracker.dto.MovieResponse;
+import ru.mawshu.movietracker.service.MovieBatchImportService;
 import ru.mawshu.movietracker.service.MovieCatalogService;
 
+import java.time.Duration;
 import java.util.List;
 
 @Validated
@@ -19,10 +25,15 @@ import java.util.List;
 @RequestMapping("/api/movies")
 public class MovieController {
 
+    private static final Duration MOVIE_MAX_AGE = Duration.ofHours(1);
+
     private final MovieCatalogService movieCatalogService;
+    private final MovieBatchImportService movieBatchImportService;
 
-    public MovieController(MovieCatalogService movieCatalogService) {
+    public MovieController(MovieCatalogService movieCatalogService,
+                           MovieBatchImportService movieBatchImportService) {
         this.movieCatalogService = movieCatalogService;
+        this.movieBatchImportService = movieBatchImportService;
     }
 
     @GetMapping("/search")
@@ -31,13 +42,17 @@ public class MovieController {
                 request.getQuery(),
                 request.getYear(),
                 request.getPage(),
-                request.getSize()
+                request.getSize(),
+                request.getUserId()
         );
     }
 
     @GetMapping("/{id}")
-    public MovieResponse getMovie(@PathVariable Long id) {
-        return movieCatalogService.getMovieResponse(id);
+    public ResponseEntity<MovieResponse> getMovie(@PathVariable Long id) {
+        // Catalog rows are written once on import and not edited afterwards.
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(MOVIE_MAX_AGE).cachePublic())
+                .body(movieCatalogService.getMovieResponse(id));
     }
 
     @PostMapping("/import/{externalId}")
@@ -45,4 +60,9 @@ public class MovieController {
     public MovieResponse importMovie(@PathVariable String externalId) {
         return movieCatalogService.importMovie(externalId);
     }
+
+    @PostMapping("/import:batch")
+    public BatchImportResponse importMovies(@Valid @RequestBody BatchImportRequest request) {
+        return movieBatchImportService.importMovies(request.getExternalIds());
+    }
 }
@@ -0,0 +1,46 @@
+package ru.mawshu.movietracker.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mawshu.movietracker.exception.BadRequestException;
+import ru.mawshu.movietracker.service.UserExportService;
+
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/users/{userId}/export")
+public class UserExportController {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final UserExportService userExportService;
+
+    public UserExportController(UserExportService userExportService) {
+        this.userExportService = userExportService;
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable Long userId,
+                                                        @RequestParam(defaultValue = "ndjson") String format) {
+        UserExportService.Format exportFormat = parseFormat(format);
+        StreamingResponseBody body = userExportService.export(userId, exportFormat);
+
+        String extension = exportFormat == UserExportService.Format.NDJSON ? "ndjson" : "json";
+        return ResponseEntity.ok()
+                .contentType(exportFormat == UserExportService.Format.NDJSON ? NDJSON : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"movie-tracker-user-" + userId + "." + extension + "\"")
+                .body(body);
+    }
+
+    private static UserExportService.Format parseFormat(String format) {
+        try {
+            return UserExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+    }
+}
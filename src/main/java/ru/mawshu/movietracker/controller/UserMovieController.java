@@ -1,8 +1,11 @@
 package ru.mawshu.movietracker.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.mawshu.movietracker.dto.*;
 import ru.mawshu.movietracker.service.UserLibraryService;
 
@@ -12,6 +15,8 @@ import java.util.List;
 @RequestMapping("/api/users/{userId}/library")
 public class UserMovieController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UserLibraryService userLibraryService;
 
     public UserMovieController(UserLibraryService userLibraryService) {
@@ -25,8 +30,28 @@ public class UserMovieController {
     }
 
     @GetMapping
-    public List<UserMovieResponse> getAll(@PathVariable Long userId) {
-        return userLibraryService.getUserMovies(userId);
+    public ResponseEntity<List<UserMovieResponse>> getAll(@PathVariable Long userId, @Valid LibraryQuery query,
+                                                          WebRequest request) {
+        if (request.checkNotModified(VersionETag.of("library", userId, userLibraryService.getLibraryVersion(userId)))) {
+            return null;
+        }
+        CursorPage<UserMovieResponse> page = userLibraryService.getUserMovies(userId, query);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/changes")
+    public LibraryChangesResponse changes(@PathVariable Long userId,
+                                          @RequestParam(defaultValue = "0") long since) {
+        return userLibraryService.getChanges(userId, since);
+    }
+
+    @GetMapping("/membership")
+    public List<MovieMembershipResponse> membership(@PathVariable Long userId, @RequestParam List<Long> movieIds) {
+        return userLibraryService.getMembership(userId, movieIds);
     }
 
     @PatchMapping("/{userMovieId}/status")
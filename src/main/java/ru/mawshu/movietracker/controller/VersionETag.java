@@ -0,0 +1,14 @@
+package ru.mawshu.movietracker.controller;
+
+/**
+ * Strong ETags built from the version counters the services bump on every write,
+ * so a conditional GET can be answered before any of the resource is read.
+ */
+final class VersionETag {
+
+    private VersionETag() {}
+
+    static String of(String resource, Long id, long version) {
+        return "\"" + resource + "-" + id + "-" + version + "\"";
+    }
+}
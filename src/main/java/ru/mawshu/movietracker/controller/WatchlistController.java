@@ -1,8 +1,11 @@
 package ru.mawshu.movietracker.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.mawshu.movietracker.dto.*;
 import ru.mawshu.movietracker.service.WatchlistService;
 
@@ -27,13 +30,43 @@ public class WatchlistController {
     }
 
     @GetMapping("/api/users/{userId}/watchlists")
-    public List<WatchlistResponse> getUserWatchlists(@PathVariable Long userId) {
-        return watchlistService.getUserWatchlists(userId);
+    public ResponseEntity<List<WatchlistResponse>> getUserWatchlists(@PathVariable Long userId, WebRequest request) {
+        if (watchlistsNotModified(userId, request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(watchlistService.getUserWatchlists(userId));
+    }
+
+    @GetMapping(path = "/api/users/{userId}/watchlists", params = "view=summary")
+    public ResponseEntity<List<WatchlistSummaryResponse>> getUserWatchlistSummaries(@PathVariable Long userId,
+                                                                                    WebRequest request) {
+        if (watchlistsNotModified(userId, request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache())
+                .body(watchlistService.getUserWatchlistSummaries(userId));
     }
 
     @GetMapping("/api/watchlists/{watchlistId}")
-    public WatchlistResponse getWatchlist(@PathVariable Long watchlistId) {
-        return watchlistService.getWatchlist(watchlistId);
+    public ResponseEntity<WatchlistResponse> getWatchlist(@PathVariable Long watchlistId, WebRequest request) {
+        if (watchlistNotModified(watchlistId, request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(watchlistService.getWatchlist(watchlistId));
+    }
+
+    @GetMapping("/api/watchlists/{watchlistId}/items")
+    public ResponseEntity<List<WatchlistItemResponse>> getItems(@PathVariable Long watchlistId, @Valid WatchlistItemsQuery query,
+                                                                WebRequest request) {
+        if (watchlistNotModified(watchlistId, request)) {
+            return null;
+        }
+        CursorPage<WatchlistItemResponse> page = watchlistService.getWatchlistItems(watchlistId, query);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (page.getNextCursor() != null) {
+            response.header(UserMovieController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     @PostMapping("/api/watchlists/{watchlistId}/items")
@@ -45,6 +78,14 @@ public class WatchlistController {
         return watchlistService.addMovieToWatchlist(watchlistId, request.getExternalId());
     }
 
+    @PostMapping("/api/watchlists/{watchlistId}/items:batch")
+    public WatchlistBatchAddResponse addItems(
+            @PathVariable Long watchlistId,
+            @Valid @RequestBody BatchImportRequest request
+    ) {
+        return watchlistService.addMoviesToWatchlist(watchlistId, request.getExternalIds());
+    }
+
     @DeleteMapping("/api/watchlists/{watchlistId}/items/{itemId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void removeItem(@PathVariable Long watchlistId, @PathVariable Long itemId) {
@@ -65,4 +106,21 @@ public class WatchlistController {
     ) {
         watchlistService.reorderItems(watchlistId, request.getOrderedItemIds());
     }
+
+    @PatchMapping("/api/watchlists/{watchlistId}/items/{itemId}/move")
+    public WatchlistItemResponse moveItem(
+            @PathVariable Long watchlistId,
+            @PathVariable Long itemId,
+            @RequestBody MoveWatchlistItemRequest request
+    ) {
+        return watchlistService.moveItem(watchlistId, itemId, request.getAfterItemId(), request.getBeforeItemId());
+    }
+
+    private boolean watchlistsNotModified(Long userId, WebRequest request) {
+        return request.checkNotModified(VersionETag.of("watchlists", userId, watchlistService.getWatchlistsVersion(userId)));
+    }
+
+    private boolean watchlistNotModified(Long watchlistId, WebRequest request) {
+        return request.checkNotModified(VersionETag.of("watchlist", watchlistId, watchlistService.getWatchlistVersion(watchlistId)));
+    }
 }
@@ -9,7 +9,8 @@ import java.util.List;
 public class Genre {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genres_id_seq")
+    @SequenceGenerator(name = "genres_id_seq", sequenceName = "genres_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
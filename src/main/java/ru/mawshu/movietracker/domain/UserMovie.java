@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 public class UserMovie {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_movies_id_seq")
+    @SequenceGenerator(name = "user_movies_id_seq", sequenceName = "user_movies_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -37,6 +38,9 @@ public class UserMovie {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    @Column(nullable = false)
+    private long changeVersion;
+
     @PrePersist
     public void prePersist() {
         LocalDateTime now = LocalDateTime.now();
@@ -64,4 +68,6 @@ public class UserMovie {
     public void setWatchedAt(LocalDateTime watchedAt) { this.watchedAt = watchedAt; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(long changeVersion) { this.changeVersion = changeVersion; }
 }
@@ -10,7 +10,8 @@ import java.util.List;
 public class Watchlist {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "watchlists_id_seq")
+    @SequenceGenerator(name = "watchlists_id_seq", sequenceName = "watchlists_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 public class WatchlistItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "watchlist_items_id_seq")
+    @SequenceGenerator(name = "watchlist_items_id_seq", sequenceName = "watchlist_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -0,0 +1,16 @@
+package ru.mawshu.movietracker.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchImportRequest {
+    @NotEmpty
+    @Size(max = 5000)
+    private List<@NotBlank String> externalIds;
+
+    public List<String> getExternalIds() { return externalIds; }
+    public void setExternalIds(List<String> externalIds) { this.externalIds = externalIds; }
+}
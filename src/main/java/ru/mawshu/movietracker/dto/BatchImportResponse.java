@@ -0,0 +1,26 @@
+package ru.mawshu.movietracker.dto;
+
+import java.util.List;
+
+public class BatchImportResponse {
+    private int imported;
+    private int existing;
+    private int failed;
+    private List<BatchImportResult> results;
+
+    public BatchImportResponse(List<BatchImportResult> results) {
+        this.results = results;
+        for (BatchImportResult r : results) {
+            switch (r.getStatus()) {
+                case IMPORTED -> imported++;
+                case EXISTING -> existing++;
+                case FAILED -> failed++;
+            }
+        }
+    }
+
+    public int getImported() { return imported; }
+    public int getExisting() { return existing; }
+    public int getFailed() { return failed; }
+    public List<BatchImportResult> getResults() { return results; }
+}
@@ -0,0 +1,39 @@
+package ru.mawshu.movietracker.dto;
+
+public class BatchImportResult {
+
+    public enum Status {
+        IMPORTED,
+        EXISTING,
+        FAILED
+    }
+
+    private String externalId;
+    private Status status;
+    private Long movieId;
+    private String error;
+
+    public BatchImportResult(String externalId, Status status, Long movieId, String error) {
+        this.externalId = externalId;
+        this.status = status;
+        this.movieId = movieId;
+        this.error = error;
+    }
+
+    public static BatchImportResult imported(String externalId, Long movieId) {
+        return new BatchImportResult(externalId, Status.IMPORTED, movieId, null);
+    }
+
+    public static BatchImportResult existing(String externalId, Long movieId) {
+        return new BatchImportResult(externalId, Status.EXISTING, movieId, null);
+    }
+
+    public static BatchImportResult failed(String externalId, String error) {
+        return new BatchImportResult(externalId, Status.FAILED, null, error);
+    }
+
+    public String getExternalId() { return externalId; }
+    public Status getStatus() { return status; }
+    public Long getMovieId() { return movieId; }
+    public String getError() { return error; }
+}
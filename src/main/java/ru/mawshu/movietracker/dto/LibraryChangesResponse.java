@@ -0,0 +1,30 @@
+package ru.mawshu.movietracker.dto;
+
+import java.util.List;
+
+public class LibraryChangesResponse {
+    private List<UserMovieResponse> upserted;
+    private List<LibraryTombstone> deleted;
+    private long nextSince;
+    private boolean resyncRequired;
+
+    public LibraryChangesResponse(List<UserMovieResponse> upserted, List<LibraryTombstone> deleted,
+                                  long nextSince, boolean resyncRequired) {
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.nextSince = nextSince;
+        this.resyncRequired = resyncRequired;
+    }
+
+    /**
+     * The cursor is too old to be answered from the kept tombstones; drop local state and start over from 0.
+     */
+    public static LibraryChangesResponse resync() {
+        return new LibraryChangesResponse(List.of(), List.of(), 0, true);
+    }
+
+    public List<UserMovieResponse> getUpserted() { return upserted; }
+    public List<LibraryTombstone> getDeleted() { return deleted; }
+    public long getNextSince() { return nextSince; }
+    public boolean isResyncRequired() { return resyncRequired; }
+}
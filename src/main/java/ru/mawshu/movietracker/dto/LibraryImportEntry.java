@@ -0,0 +1,30 @@
+package ru.mawshu.movietracker.dto;
+
+public class LibraryImportEntry {
+    private String externalId;
+    private String status;
+    private Integer rating;
+    private Boolean liked;
+    private String watchedAt;
+
+    public LibraryImportEntry() {}
+
+    public LibraryImportEntry(String externalId, String status, Integer rating, Boolean liked, String watchedAt) {
+        this.externalId = externalId;
+        this.status = status;
+        this.rating = rating;
+        this.liked = liked;
+        this.watchedAt = watchedAt;
+    }
+
+    public String getExternalId() { return externalId; }
+    public void setExternalId(String externalId) { this.externalId = externalId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Integer getRating() { return rating; }
+    public void setRating(Integer rating) { this.rating = rating; }
+    public Boolean getLiked() { return liked; }
+    public void setLiked(Boolean liked) { this.liked = liked; }
+    public String getWatchedAt() { return watchedAt; }
+    public void setWatchedAt(String watchedAt) { this.watchedAt = watchedAt; }
+}
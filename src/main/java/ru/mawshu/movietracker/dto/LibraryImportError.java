@@ -0,0 +1,17 @@
+package ru.mawshu.movietracker.dto;
+
+public class LibraryImportError {
+    private int row;
+    private String externalId;
+    private String message;
+
+    public LibraryImportError(int row, String externalId, String message) {
+        this.row = row;
+        this.externalId = externalId;
+        this.message = message;
+    }
+
+    public int getRow() { return row; }
+    public String getExternalId() { return externalId; }
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,16 @@
+package ru.mawshu.movietracker.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class LibraryImportRequest {
+    @NotEmpty
+    @Size(max = 20000)
+    private List<@NotNull LibraryImportEntry> entries;
+
+    public List<LibraryImportEntry> getEntries() { return entries; }
+    public void setEntries(List<LibraryImportEntry> entries) { this.entries = entries; }
+}
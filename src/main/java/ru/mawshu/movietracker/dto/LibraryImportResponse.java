@@ -0,0 +1,25 @@
+package ru.mawshu.movietracker.dto;
+
+import java.util.List;
+
+public class LibraryImportResponse {
+    private int total;
+    private int saved;
+    private int failed;
+    private int moviesImported;
+    private List<LibraryImportError> errors;
+
+    public LibraryImportResponse(int total, int saved, int moviesImported, List<LibraryImportError> errors) {
+        this.total = total;
+        this.saved = saved;
+        this.failed = errors.size();
+        this.moviesImported = moviesImported;
+        this.errors = errors;
+    }
+
+    public int getTotal() { return total; }
+    public int getSaved() { return saved; }
+    public int getFailed() { return failed; }
+    public int getMoviesImported() { return moviesImported; }
+    public List<LibraryImportError> getErrors() { return errors; }
+}
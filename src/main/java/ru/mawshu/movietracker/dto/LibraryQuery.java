@@ -0,0 +1,46 @@
+package ru.mawshu.movietracker.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import ru.mawshu.movietracker.domain.WatchStatus;
+
+public class LibraryQuery {
+
+    private WatchStatus status;
+    private Boolean liked;
+
+    @Min(0)
+    @Max(10)
+    private Integer minRating;
+
+    @Pattern(regexp = "addedAt|updatedAt|watchedAt|rating|title|year")
+    private String sort = "addedAt";
+
+    @Pattern(regexp = "asc|desc")
+    private String dir = "desc";
+
+    private String cursor;
+
+    @NotNull
+    @Min(1)
+    @Max(500)
+    private Integer limit = 50;
+
+    public LibraryQuery() {}
+    public WatchStatus getStatus() { return status; }
+    public void setStatus(WatchStatus status) { this.status = status; }
+    public Boolean getLiked() { return liked; }
+    public void setLiked(Boolean liked) { this.liked = liked; }
+    public Integer getMinRating() { return minRating; }
+    public void setMinRating(Integer minRating) { this.minRating = minRating; }
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+}
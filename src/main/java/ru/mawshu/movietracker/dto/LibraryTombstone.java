@@ -0,0 +1,19 @@
+package ru.mawshu.movietracker.dto;
+
+import java.time.LocalDateTime;
+
+public class LibraryTombstone {
+    private Long userMovieId;
+    private Long movieId;
+    private LocalDateTime deletedAt;
+
+    public LibraryTombstone(Long userMovieId, Long movieId, LocalDateTime deletedAt) {
+        this.userMovieId = userMovieId;
+        this.movieId = movieId;
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getUserMovieId() { return userMovieId; }
+    public Long getMovieId() { return movieId; }
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+}
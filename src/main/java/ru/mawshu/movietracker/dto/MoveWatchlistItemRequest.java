@@ -0,0 +1,15 @@
+package ru.mawshu.movietracker.dto;
+
+/**
+ * Where to put an item: directly after {@code afterItemId}, directly before {@code beforeItemId},
+ * or between the two when both are given (they must then be adjacent).
+ */
+public class MoveWatchlistItemRequest {
+    private Long afterItemId;
+    private Long beforeItemId;
+
+    public Long getAfterItemId() { return afterItemId; }
+    public void setAfterItemId(Long afterItemId) { this.afterItemId = afterItemId; }
+    public Long getBeforeItemId() { return beforeItemId; }
+    public void setBeforeItemId(Long beforeItemId) { this.beforeItemId = beforeItemId; }
+}
@@ -0,0 +1,21 @@
+package ru.mawshu.movietracker.dto;
+
+import ru.mawshu.movietracker.domain.WatchStatus;
+
+import java.util.List;
+
+public class MovieMembershipResponse {
+    private Long movieId;
+    private WatchStatus status;
+    private List<Long> watchlistIds;
+
+    public MovieMembershipResponse(Long movieId, WatchStatus status, List<Long> watchlistIds) {
+        this.movieId = movieId;
+        this.status = status;
+        this.watchlistIds = watchlistIds;
+    }
+
+    public Long getMovieId() { return movieId; }
+    public WatchStatus getStatus() { return status; }
+    public List<Long> getWatchlistIds() { return watchlistIds; }
+}
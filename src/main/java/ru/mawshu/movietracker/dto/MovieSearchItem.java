@@ -1,11 +1,15 @@
 package ru.mawshu.movietracker.dto;
 
+import ru.mawshu.movietracker.domain.WatchStatus;
+
 public class MovieSearchItem {
     private String externalId;
     private String title;
     private Integer year;
     private String posterUrl;
     private String overview;
+    private WatchStatus status;
+    private Boolean liked;
 
     public MovieSearchItem(String externalId, String title, Integer year, String posterUrl, String overview) {
         this.externalId = externalId;
@@ -20,4 +24,11 @@ public class MovieSearchItem {
     public Integer getYear() { return year; }
     public String getPosterUrl() { return posterUrl; }
     public String getOverview() { return overview; }
+    public WatchStatus getStatus() { return status; }
+    public Boolean getLiked() { return liked; }
+
+    public void setLibraryState(WatchStatus status, boolean liked) {
+        this.status = status;
+        this.liked = liked;
+    }
 }
@@ -14,6 +14,8 @@ public class MovieSearchRequest {
     @Min(value = 1)
     private Integer size = 10;
 
+    private Long userId;
+
     public MovieSearchRequest() {}
     public String getQuery() {return query;}
     public void setQuery(String query) {this.query = query;}
@@ -23,4 +25,6 @@ public class MovieSearchRequest {
     public void setPage(Integer page) {this.page = page;}
     public Integer getSize() {return size;}
     public void setSize(Integer size) {this.size = size;}
+    public Long getUserId() {return userId;}
+    public void setUserId(Long userId) {this.userId = userId;}
 }
@@ -5,7 +5,7 @@ import java.util.List;
 
 public class ReorderWatchlistRequest {
     @NotNull
-    private List<Long> orderedItemIds;
+    private List<@NotNull Long> orderedItemIds;
 
     public List<Long> getOrderedItemIds() { return orderedItemIds; }
     public void setOrderedItemIds(List<Long> orderedItemIds) { this.orderedItemIds = orderedItemIds; }
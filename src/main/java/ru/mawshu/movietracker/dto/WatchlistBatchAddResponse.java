@@ -0,0 +1,19 @@
+package ru.mawshu.movietracker.dto;
+
+import java.util.List;
+
+public class WatchlistBatchAddResponse {
+    private List<WatchlistItemResponse> added;
+    private List<String> skipped;
+    private List<BatchImportResult> failed;
+
+    public WatchlistBatchAddResponse(List<WatchlistItemResponse> added, List<String> skipped, List<BatchImportResult> failed) {
+        this.added = added;
+        this.skipped = skipped;
+        this.failed = failed;
+    }
+
+    public List<WatchlistItemResponse> getAdded() { return added; }
+    public List<String> getSkipped() { return skipped; }
+    public List<BatchImportResult> getFailed() { return failed; }
+}
@@ -0,0 +1,21 @@
+package ru.mawshu.movietracker.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public class WatchlistItemsQuery {
+
+    private String cursor;
+
+    @NotNull
+    @Min(1)
+    @Max(500)
+    private Integer limit = 50;
+
+    public WatchlistItemsQuery() {}
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+}
@@ -10,14 +10,21 @@ public class WatchlistResponse {
     private String description;
     private LocalDateTime createdAt;
     private List<WatchlistItemResponse> items;
+    private String nextItemsCursor;
 
     public WatchlistResponse(Long id, Long userId, String title, String description, LocalDateTime createdAt, List<WatchlistItemResponse> items) {
+        this(id, userId, title, description, createdAt, items, null);
+    }
+
+    public WatchlistResponse(Long id, Long userId, String title, String description, LocalDateTime createdAt,
+                             List<WatchlistItemResponse> items, String nextItemsCursor) {
         this.id = id;
         this.userId = userId;
         this.title = title;
         this.description = description;
         this.createdAt = createdAt;
         this.items = items;
+        this.nextItemsCursor = nextItemsCursor;
     }
 
     public Long getId() { return id; }
@@ -26,4 +33,5 @@ public class WatchlistResponse {
     public String getDescription() { return description; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public List<WatchlistItemResponse> getItems() { return items; }
+    public String getNextItemsCursor() { return nextItemsCursor; }
 }
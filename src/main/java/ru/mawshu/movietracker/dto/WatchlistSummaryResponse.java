@@ -0,0 +1,30 @@
+package ru.mawshu.movietracker.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class WatchlistSummaryResponse {
+    private Long id;
+    private String title;
+    private String description;
+    private LocalDateTime createdAt;
+    private int itemCount;
+    private List<String> posterUrls;
+
+    public WatchlistSummaryResponse(Long id, String title, String description, LocalDateTime createdAt,
+                                    int itemCount, List<String> posterUrls) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.createdAt = createdAt;
+        this.itemCount = itemCount;
+        this.posterUrls = posterUrls;
+    }
+
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public int getItemCount() { return itemCount; }
+    public List<String> getPosterUrls() { return posterUrls; }
+}
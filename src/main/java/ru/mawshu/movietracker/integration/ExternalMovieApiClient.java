@@ -1,48 +1,327 @@
 package ru.mawshu.movietracker.integration;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import ru.mawshu.movietracker.exception.UpstreamUnavailableException;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Component
 public class ExternalMovieApiClient {
 
+    static final String DETAILS_CACHE_NAME = "tmdb.details";
+    static final String SEARCH_CACHE_NAME = "tmdb.search";
+    static final String RESILIENCE_NAME = "tmdb";
+
+    private static final Duration TRANSIENT_RETRY_AFTER = Duration.ofSeconds(1);
+
     private final RestClient restClient;
     private final String apiKey;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration openRetryAfter;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final Duration rateLimitMaxWait;
+    private final Executor refreshExecutor;
+    private final AsyncCache<String, TmdbMovie> detailsCache;
+    private final AsyncLoadingCache<SearchKey, TmdbSearchPage> searchCache;
+
+    /**
+     * The pooled TMDB HTTP client is set on this client's own builder only; Boot hands out a
+     * fresh builder per injection point, so other RestClients keep their defaults.
+     */
+    @Autowired
+    public ExternalMovieApiClient(RestClient.Builder restClientBuilder,
+                                  CloseableHttpClient tmdbHttpClient,
+                                  TmdbProperties properties,
+                                  MeterRegistry meterRegistry,
+                                  Environment environment) {
+        this(restClientBuilder.requestFactory(new HttpComponentsClientHttpRequestFactory(tmdbHttpClient)),
+                properties, meterRegistry, environment);
+    }
 
-    public ExternalMovieApiClient(@Value("${tmdb.apiKey}") String apiKey) {
-        this.apiKey = apiKey;
-        this.restClient = RestClient.builder()
-                .baseUrl("https://api.themoviedb.org/3")
+    ExternalMovieApiClient(RestClient.Builder restClientBuilder,
+                           TmdbProperties properties,
+                           MeterRegistry meterRegistry,
+                           Environment environment) {
+        this.apiKey = properties.getApiKey();
+        this.restClient = restClientBuilder
+                .baseUrl(properties.getBaseUrl())
                 .build();
+        this.circuitBreaker = buildCircuitBreaker(properties.getResilience(), meterRegistry);
+        this.bulkhead = buildBulkhead(properties.getResilience(), meterRegistry);
+        this.openRetryAfter = properties.getResilience().getWaitInOpenState();
+        this.rateLimiter = buildRateLimiter(properties.getRateLimit(), meterRegistry);
+        this.rateLimitMaxWait = properties.getRateLimit().getMaxWait();
+        this.refreshExecutor = buildRefreshExecutor(properties.getResilience(), environment);
+        this.detailsCache = buildDetailsCache(properties.getCache().getDetails(), meterRegistry);
+        this.searchCache = buildSearchCache(properties.getCache().getSearch(), meterRegistry);
+    }
+
+    public TmdbSearchPage searchMovies(String query, Integer year, int page) {
+        SearchKey key = SearchKey.of(query, year, page);
+        if (searchCache == null) {
+            return fetchSearch(key);
+        }
+        // Misses load on the calling thread like details do; only refreshAfterWrite reloads
+        // go through the cache loader on the refresh executor.
+        return loadOnCaller(searchCache, key, this::fetchSearch);
     }
 
-    public Map searchMovies(String query, Integer year, int page) {
-        return restClient.get()
+    private TmdbSearchPage fetchSearch(SearchKey key) {
+        return call(() -> restClient.get()
                 .uri(uriBuilder -> {
                     uriBuilder.path("/search/movie")
                             .queryParam("api_key", apiKey)
-                            .queryParam("query", query)
-                            .queryParam("page", page);
-                    if (year != null) {
-                        uriBuilder.queryParam("year", year);
+                            .queryParam("query", key.query())
+                            .queryParam("page", key.page());
+                    if (key.year() != null) {
+                        uriBuilder.queryParam("year", key.year());
                     }
                     return uriBuilder.build();
                 })
                 .retrieve()
-                .body(Map.class);
+                .body(TmdbSearchPage.class));
+    }
+
+    public TmdbMovie getMovieDetails(String externalId) {
+        if (detailsCache == null) {
+            return fetchMovieDetails(externalId);
+        }
+
+        return loadOnCaller(detailsCache, externalId, this::fetchMovieDetails);
+    }
+
+    // The HTTP call runs on the calling thread, outside the cache's map lock,
+    // so a virtual thread waiting on TMDB does not pin its carrier.
+    private static <K, V> V loadOnCaller(AsyncCache<K, V> cache, K key, Function<K, V> fetch) {
+        CompletableFuture<V> placeholder = new CompletableFuture<>();
+        CompletableFuture<V> future = cache.get(key, (k, executor) -> placeholder);
+        if (future == placeholder) {
+            try {
+                placeholder.complete(fetch.apply(key));
+            } catch (RuntimeException e) {
+                placeholder.completeExceptionally(e);
+            }
+        }
+        return join(future);
     }
 
-    public Map getMovieDetails(String externalId) {
-        return restClient.get()
+    private TmdbMovie fetchMovieDetails(String externalId) {
+        return call(() -> restClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/movie/{id}")
                         .queryParam("api_key", apiKey)
                         .build(externalId))
                 .retrieve()
-                .body(Map.class);
+                .body(TmdbMovie.class));
+    }
+
+    private <T> T call(Supplier<T> request) {
+        // Waiting for a token happens outside the breaker so queueing is not counted as a slow call.
+        if (rateLimiter != null && !rateLimiter.acquire(rateLimitMaxWait)) {
+            String message = Thread.currentThread().isInterrupted()
+                    ? "Interrupted while waiting for a TMDB request slot"
+                    : "TMDB request budget exhausted";
+            throw new UpstreamUnavailableException(message, atLeastOneSecond(rateLimiter.nextAvailableIn()), null);
+        }
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(circuitBreaker,
+                Bulkhead.decorateSupplier(bulkhead, request));
+        try {
+            return guarded.get();
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            throw new UpstreamUnavailableException("TMDB rate limit exceeded", retryAfter(e), e);
+        } catch (CallNotPermittedException e) {
+            throw new UpstreamUnavailableException("TMDB is temporarily unavailable", openRetryAfter, e);
+        } catch (BulkheadFullException e) {
+            throw new UpstreamUnavailableException("Too many concurrent TMDB requests", TRANSIENT_RETRY_AFTER, e);
+        } catch (RuntimeException e) {
+            if (isUpstreamFailure(e)) {
+                throw new UpstreamUnavailableException("TMDB request failed", TRANSIENT_RETRY_AFTER, e);
+            }
+            throw e;
+        }
+    }
+
+    private static Duration retryAfter(HttpClientErrorException e) {
+        String header = e.getResponseHeaders() == null ? null
+                : e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (header != null) {
+            try {
+                return atLeastOneSecond(Duration.ofSeconds(Long.parseLong(header.strip())));
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form; fall back to the default below
+            }
+        }
+        return TRANSIENT_RETRY_AFTER;
+    }
+
+    private static Duration atLeastOneSecond(Duration duration) {
+        return duration.compareTo(TRANSIENT_RETRY_AFTER) < 0 ? TRANSIENT_RETRY_AFTER : duration;
+    }
+
+    private static boolean isUpstreamFailure(Throwable e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+
+    private static CircuitBreaker buildCircuitBreaker(TmdbProperties.Resilience settings, MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(settings.getFailureRateThreshold())
+                .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(settings.getSlowCallThreshold())
+                .slidingWindowSize(settings.getSlidingWindowSize())
+                .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(settings.getWaitInOpenState())
+                .recordException(ExternalMovieApiClient::isUpstreamFailure)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(RESILIENCE_NAME);
+    }
+
+    private static Bulkhead buildBulkhead(TmdbProperties.Resilience settings, MeterRegistry meterRegistry) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(settings.getMaxConcurrentCalls())
+                .maxWaitDuration(settings.getMaxWait())
+                .build();
+        BulkheadRegistry registry = BulkheadRegistry.of(config);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(RESILIENCE_NAME);
+    }
+
+    private static TokenBucketRateLimiter buildRateLimiter(TmdbProperties.RateLimit settings,
+                                                           MeterRegistry meterRegistry) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        return new TokenBucketRateLimiter(settings.getRequestsPerSecond(), settings.getBurst(),
+                RESILIENCE_NAME, meterRegistry);
+    }
+
+    private AsyncCache<String, TmdbMovie> buildDetailsCache(TmdbProperties.DetailsCache settings,
+                                                      MeterRegistry meterRegistry) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+
+        AsyncCache<String, TmdbMovie> cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfterWrite(settings.getTtl())
+                .executor(refreshExecutor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), DETAILS_CACHE_NAME);
+        return cache;
+    }
+
+    private AsyncLoadingCache<SearchKey, TmdbSearchPage> buildSearchCache(TmdbProperties.SearchCache settings,
+                                                          MeterRegistry meterRegistry) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+
+        // Entries older than refreshAfter are still served while a background reload runs,
+        // so a hot query only waits on TMDB when it has been idle for longer than the TTL.
+        AsyncLoadingCache<SearchKey, TmdbSearchPage> cache = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaxMemory().toBytes())
+                .weigher((SearchKey key, TmdbSearchPage value) -> estimateSize(value))
+                .expireAfterWrite(settings.getTtl())
+                .refreshAfterWrite(settings.getRefreshAfter())
+                .executor(refreshExecutor)
+                .recordStats()
+                .buildAsync(this::fetchSearch);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), SEARCH_CACHE_NAME);
+        return cache;
+    }
+
+    private static Executor buildRefreshExecutor(TmdbProperties.Resilience settings, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("tmdb-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        // Sized to the bulkhead, since more refreshes could not reach TMDB at once anyway. When the
+        // queue is full the refresh is rejected and the stale entry is served until the next attempt.
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("tmdb-refresh-");
+        executor.setCorePoolSize(settings.getMaxConcurrentCalls());
+        executor.setMaxPoolSize(settings.getMaxConcurrentCalls());
+        executor.setQueueCapacity(settings.getMaxConcurrentCalls());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    static int estimateSize(TmdbSearchPage response) {
+        int size = 256;
+        if (response != null) {
+            for (TmdbMovie movie : response.results()) {
+                size += 96 + 8 * 6
+                        + sizeOf(movie.title()) + sizeOf(movie.releaseDate())
+                        + sizeOf(movie.overview()) + sizeOf(movie.posterPath());
+            }
+        }
+        return size;
+    }
+
+    private static int sizeOf(String text) {
+        return text == null ? 0 : 40 + 2 * text.length();
+    }
+
+    record SearchKey(String query, Integer year, int page) {
+
+        static SearchKey of(String query, Integer year, int page) {
+            String normalized = query == null ? "" : query.strip()
+                    .replaceAll("\\s+", " ")
+                    .toLowerCase(Locale.ROOT);
+            return new SearchKey(normalized, year, page);
+        }
     }
 
 }
@@ -0,0 +1,20 @@
+package ru.mawshu.movietracker.integration;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The subset of a TMDB movie we store. Everything else in the payload
+ * (genres, credits, production companies, ...) is skipped by the parser
+ * without being materialized.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TmdbMovie(
+        Long id,
+        String title,
+        @JsonProperty("release_date") String releaseDate,
+        String overview,
+        @JsonProperty("poster_path") String posterPath,
+        Integer runtime
+) {
+}
@@ -0,0 +1,140 @@
+package ru.mawshu.movietracker.integration;
+
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Validated
+@ConfigurationProperties(prefix = "tmdb")
+public class TmdbProperties {
+
+    // Required: without it every TMDB call would fail with 401 instead of startup failing.
+    @NotBlank
+    private String apiKey;
+    private String baseUrl = "https://api.themoviedb.org/3";
+    private final Cache cache = new Cache();
+    private final Http http = new Http();
+    private final Resilience resilience = new Resilience();
+    private final RateLimit rateLimit = new RateLimit();
+
+    public String getApiKey() { return apiKey; }
+    public void setApiKey(String apiKey) { this.apiKey = apiKey; }
+    public String getBaseUrl() { return baseUrl; }
+    public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+    public Cache getCache() { return cache; }
+    public Http getHttp() { return http; }
+    public Resilience getResilience() { return resilience; }
+    public RateLimit getRateLimit() { return rateLimit; }
+
+    public static class Cache {
+        private final DetailsCache details = new DetailsCache();
+        private final SearchCache search = new SearchCache();
+
+        public DetailsCache getDetails() { return details; }
+        public SearchCache getSearch() { return search; }
+    }
+
+    public static class DetailsCache {
+        private boolean enabled = true;
+        private long maxSize = 10_000;
+        private Duration ttl = Duration.ofHours(6);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public long getMaxSize() { return maxSize; }
+        public void setMaxSize(long maxSize) { this.maxSize = maxSize; }
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    public static class SearchCache {
+        private boolean enabled = true;
+        private DataSize maxMemory = DataSize.ofMegabytes(16);
+        private Duration ttl = Duration.ofMinutes(10);
+        private Duration refreshAfter = Duration.ofMinutes(1);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public DataSize getMaxMemory() { return maxMemory; }
+        public void setMaxMemory(DataSize maxMemory) { this.maxMemory = maxMemory; }
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+        public Duration getRefreshAfter() { return refreshAfter; }
+        public void setRefreshAfter(Duration refreshAfter) { this.refreshAfter = refreshAfter; }
+    }
+
+    public static class Http {
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        private Duration poolAcquireTimeout = Duration.ofSeconds(2);
+        private int maxConnections = 50;
+        private int maxConnectionsPerRoute = 20;
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration connectionTtl = Duration.ofMinutes(5);
+
+        public Duration getConnectTimeout() { return connectTimeout; }
+        public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+        public Duration getReadTimeout() { return readTimeout; }
+        public void setReadTimeout(Duration readTimeout) { this.readTimeout = readTimeout; }
+        public Duration getPoolAcquireTimeout() { return poolAcquireTimeout; }
+        public void setPoolAcquireTimeout(Duration poolAcquireTimeout) { this.poolAcquireTimeout = poolAcquireTimeout; }
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+        public int getMaxConnectionsPerRoute() { return maxConnectionsPerRoute; }
+        public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) { this.maxConnectionsPerRoute = maxConnectionsPerRoute; }
+        public Duration getKeepAlive() { return keepAlive; }
+        public void setKeepAlive(Duration keepAlive) { this.keepAlive = keepAlive; }
+        public Duration getIdleTimeout() { return idleTimeout; }
+        public void setIdleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; }
+        public Duration getConnectionTtl() { return connectionTtl; }
+        public void setConnectionTtl(Duration connectionTtl) { this.connectionTtl = connectionTtl; }
+    }
+
+    public static class Resilience {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallThreshold = Duration.ofSeconds(3);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitInOpenState = Duration.ofSeconds(30);
+        private int maxConcurrentCalls = 20;
+        private Duration maxWait = Duration.ofMillis(500);
+
+        public float getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(float failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+        public float getSlowCallRateThreshold() { return slowCallRateThreshold; }
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) { this.slowCallRateThreshold = slowCallRateThreshold; }
+        public Duration getSlowCallThreshold() { return slowCallThreshold; }
+        public void setSlowCallThreshold(Duration slowCallThreshold) { this.slowCallThreshold = slowCallThreshold; }
+        public int getSlidingWindowSize() { return slidingWindowSize; }
+        public void setSlidingWindowSize(int slidingWindowSize) { this.slidingWindowSize = slidingWindowSize; }
+        public int getMinimumNumberOfCalls() { return minimumNumberOfCalls; }
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) { this.minimumNumberOfCalls = minimumNumberOfCalls; }
+        public Duration getWaitInOpenState() { return waitInOpenState; }
+        public void setWaitInOpenState(Duration waitInOpenState) { this.waitInOpenState = waitInOpenState; }
+        public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls; }
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+    }
+
+    public static class RateLimit {
+        private boolean enabled = true;
+        private double requestsPerSecond = 40;
+        private int burst = 20;
+        private Duration maxWait = Duration.ofSeconds(10);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public double getRequestsPerSecond() { return requestsPerSecond; }
+        public void setRequestsPerSecond(double requestsPerSecond) { this.requestsPerSecond = requestsPerSecond; }
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+    }
+}
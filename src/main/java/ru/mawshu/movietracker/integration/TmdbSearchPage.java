@@ -0,0 +1,13 @@
+package ru.mawshu.movietracker.integration;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TmdbSearchPage(int page, List<TmdbMovie> results) {
+
+    public TmdbSearchPage {
+        results = results == null ? List.of() : results;
+    }
+}
@@ -0,0 +1,156 @@
+package ru.mawshu.movietracker.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Outbound token bucket: refills at {@code permitsPerSecond} up to {@code burst} stored tokens.
+ * A caller that finds the bucket empty reserves a future token and sleeps until it is due,
+ * so waiters are served in arrival order. If that wait would exceed the caller's deadline
+ * nothing is reserved and the acquire is rejected.
+ */
+class TokenBucketRateLimiter {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongSupplier nanoClock;
+    private final double permitsPerNano;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefill;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, String name, MeterRegistry meterRegistry) {
+        this(permitsPerSecond, burst, name, meterRegistry, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, String name, MeterRegistry meterRegistry,
+                           LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1");
+        }
+        this.nanoClock = nanoClock;
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+
+        Gauge.builder("ratelimiter.queue.depth", waiting, AtomicInteger::get)
+                .tag("name", name)
+                .description("Callers currently waiting for a token")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("ratelimiter.wait")
+                .tag("name", name)
+                .description("Time callers spent waiting for a token")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("ratelimiter.rejected")
+                .tag("name", name)
+                .description("Acquires that could not get a token before their deadline")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Blocks until a token is available or returns {@code false} straight away
+     * if none can be had within {@code maxWait}. An interrupted wait also returns
+     * {@code false}, with the interrupt flag kept and the reserved token given back.
+     */
+    boolean acquire(Duration maxWait) {
+        long waitNanos = reserve(maxWait.toNanos());
+        if (waitNanos < 0) {
+            rejected.increment();
+            return false;
+        }
+        if (waitNanos > 0) {
+            boolean slept;
+            waiting.incrementAndGet();
+            try {
+                slept = sleepNanos(waitNanos);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!slept) {
+                refund();
+                return false;
+            }
+        }
+        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * Takes one token, going into debt if the bucket is empty, and returns how long the
+     * caller has to wait for it; {@code -1} if that would be longer than {@code maxWaitNanos}.
+     */
+    long reserve(long maxWaitNanos) {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+
+            double remaining = tokens - 1;
+            long waitNanos = remaining >= 0 ? 0 : (long) Math.ceil(-remaining / permitsPerNano);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            tokens = remaining;
+            return waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refund() {
+        lock.lock();
+        try {
+            tokens = Math.min(burst, tokens + 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How long until the next caller would get a token.
+     */
+    Duration nextAvailableIn() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            double available = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+            return available >= 1 ? Duration.ZERO
+                    : Duration.ofNanos((long) Math.ceil((1 - available) / permitsPerNano));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queueDepth() {
+        return waiting.get();
+    }
+
+    private static boolean sleepNanos(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long left = nanos;
+        while (left > 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(left);
+            left = deadline - System.nanoTime();
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+}
@@ -3,9 +3,13 @@ package ru.mawshu.movietracker.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import ru.mawshu.movietracker.domain.Movie;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, MovieRepositoryCustom {
     Optional<Movie> findByExternalId(String externalId);
     boolean existsByExternalId(String externalId);
+
+    List<Movie> findByExternalIdIn(Collection<String> externalIds);
 }
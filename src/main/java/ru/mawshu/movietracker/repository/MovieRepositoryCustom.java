@@ -0,0 +1,20 @@
+package ru.mawshu.movietracker.repository;
+
+import ru.mawshu.movietracker.domain.Movie;
+import ru.mawshu.movietracker.dto.MovieSearchItem;
+
+import java.util.List;
+
+public interface MovieRepositoryCustom {
+    /**
+     * Inserts the movies with JDBC batching. Rows whose external_id already
+     * exists are skipped, so callers re-read ids afterwards.
+     */
+    void batchInsert(List<Movie> movies);
+
+    /**
+     * Ranked search over title and overview of movies we already hold.
+     * Uses the search_vector index on PostgreSQL and a LIKE scan elsewhere (H2 in tests).
+     */
+    List<MovieSearchItem> searchLocal(String query, Integer year, int limit, int offset);
+}
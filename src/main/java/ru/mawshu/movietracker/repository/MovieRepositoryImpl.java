@@ -0,0 +1,115 @@
+package ru.mawshu.movietracker.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mawshu.movietracker.domain.Movie;
+import ru.mawshu.movietracker.dto.MovieSearchItem;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+public class MovieRepositoryImpl implements MovieRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL = """
+            insert into movies (external_id, title, year, runtime_minutes, poster_url, overview, created_at)
+            values (?, ?, ?, ?, ?, ?, ?)
+            on conflict (external_id) do nothing
+            """;
+
+    private static final String FULL_TEXT_SEARCH_SQL = """
+            select m.external_id, m.title, m.year, m.poster_url, m.overview
+            from movies m, websearch_to_tsquery('english', ?) q
+            where m.search_vector @@ q
+              and (cast(? as integer) is null or m.year = ?)
+            order by ts_rank_cd(m.search_vector, q) desc, m.id
+            limit ? offset ?
+            """;
+
+    private static final String LIKE_SEARCH_SQL = """
+            select m.external_id, m.title, m.year, m.poster_url, m.overview
+            from movies m
+            where (lower(m.title) like ? escape '\\' or lower(m.overview) like ? escape '\\')
+              and (cast(? as integer) is null or m.year = ?)
+            order by case
+                         when lower(m.title) = ? then 0
+                         when lower(m.title) like ? escape '\\' then 1
+                         when lower(m.title) like ? escape '\\' then 2
+                         else 3
+                     end, m.title, m.id
+            limit ? offset ?
+            """;
+
+    private static final RowMapper<MovieSearchItem> SEARCH_ITEM_MAPPER = (rs, rowNum) -> new MovieSearchItem(
+            rs.getString("external_id"),
+            rs.getString("title"),
+            rs.getObject("year", Integer.class),
+            rs.getString("poster_url"),
+            rs.getString("overview"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public MovieRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void batchInsert(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, movies, BATCH_SIZE, (ps, m) -> {
+            ps.setString(1, m.getExternalId());
+            ps.setString(2, m.getTitle());
+            ps.setObject(3, m.getYear(), Types.INTEGER);
+            ps.setObject(4, m.getRuntimeMinutes(), Types.INTEGER);
+            ps.setString(5, m.getPosterUrl());
+            ps.setString(6, m.getOverview());
+            ps.setTimestamp(7, m.getCreatedAt() == null ? now : Timestamp.valueOf(m.getCreatedAt()));
+        });
+    }
+
+    @Override
+    public List<MovieSearchItem> searchLocal(String query, Integer year, int limit, int offset) {
+        String text = query == null ? "" : query.strip();
+        if (text.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        if (isPostgres()) {
+            return jdbcTemplate.query(FULL_TEXT_SEARCH_SQL, SEARCH_ITEM_MAPPER, text, year, year, limit, offset);
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        String escaped = escapeLike(lower);
+        String contains = "%" + escaped + "%";
+        return jdbcTemplate.query(LIKE_SEARCH_SQL, SEARCH_ITEM_MAPPER,
+                contains, contains, year, year,
+                lower, escaped + "%", contains,
+                limit, offset);
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,14 +1,20 @@
 package ru.mawshu.movietracker.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.mawshu.movietracker.domain.UserMovie;
+import ru.mawshu.movietracker.domain.WatchStatus;
 
 import java.util.List;
 import java.util.Optional;
 
-public interface UserMovieRepository extends JpaRepository<UserMovie, Long> {
+public interface UserMovieRepository extends JpaRepository<UserMovie, Long>, UserMovieRepositoryCustom {
     List<UserMovie> findByUserId(Long userId);
     Optional<UserMovie> findByIdAndUserId(Long id, Long userId);
 
     Optional<UserMovie> findByUserIdAndMovieId(Long userId, Long movieId);
+
+    @Query("select um.movie.id from UserMovie um where um.user.id = :userId and um.status = :status")
+    List<Long> findMovieIdsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") WatchStatus status);
 }
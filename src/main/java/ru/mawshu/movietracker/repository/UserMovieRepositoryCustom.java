@@ -0,0 +1,81 @@
+package ru.mawshu.movietracker.repository;
+
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.LibraryQuery;
+import ru.mawshu.movietracker.dto.LibraryTombstone;
+import ru.mawshu.movietracker.dto.UserMovieResponse;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface UserMovieRepositoryCustom {
+
+    /**
+     * One library row to write. Null rating/liked/watchedAt keep what an existing row has.
+     */
+    record LibraryUpsert(Long movieId, WatchStatus status, Integer rating, Boolean liked, LocalDateTime watchedAt) {}
+
+    /**
+     * Where a movie, identified by its external id, sits in a user's library.
+     */
+    record LibraryState(String externalId, WatchStatus status, boolean liked) {}
+
+    /**
+     * A user's current library version and the lowest change cursor still answerable after tombstone pruning.
+     */
+    record ChangeCursor(long version, long floor) {}
+
+    /**
+     * One keyset page of a user's library, read with a single user_movies/movies join
+     * straight into response objects.
+     */
+    CursorPage<UserMovieResponse> findLibraryPage(Long userId, LibraryQuery query);
+
+    /**
+     * Feeds every library entry of the user to {@code consumer} while reading the result set,
+     * without collecting the rows. Must run inside a transaction for the fetch size to take effect.
+     */
+    void streamLibrary(Long userId, Consumer<UserMovieResponse> consumer);
+
+    /**
+     * Inserts or updates the user's rows in one JDBC batch keyed on (user_id, movie_id),
+     * stamped with a freshly bumped library version of the user.
+     */
+    void batchUpsert(Long userId, List<LibraryUpsert> rows);
+
+    /**
+     * Library status of whichever of {@code externalIds} the user has, in one query.
+     * Movies the user has not added are simply absent from the result.
+     */
+    List<LibraryState> findLibraryStates(Long userId, Collection<String> externalIds);
+
+    /**
+     * Bumps the user's library version and returns the new value. The bump holds the users row lock
+     * until commit, so versions of one user become visible in the order they were taken.
+     */
+    long nextLibraryVersion(Long userId);
+
+    Optional<ChangeCursor> findChangeCursor(Long userId);
+
+    /**
+     * Entries of the user stamped with a version above {@code since}, oldest change first.
+     */
+    List<UserMovieResponse> findChangedSince(Long userId, long since);
+
+    /**
+     * Remembers a deleted entry so that delta sync can tell clients to drop it.
+     */
+    void insertTombstone(Long userId, Long userMovieId, Long movieId, long version, LocalDateTime deletedAt);
+
+    List<LibraryTombstone> findTombstonesSince(Long userId, long since);
+
+    /**
+     * Deletes tombstones older than {@code cutoff} and raises each affected user's change floor
+     * to the newest version deleted, so cursors that could have missed them are sent to resync.
+     */
+    int pruneTombstones(LocalDateTime cutoff);
+}
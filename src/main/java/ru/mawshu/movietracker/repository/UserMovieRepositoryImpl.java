@@ -0,0 +1,302 @@
+package ru.mawshu.movietracker.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.LibraryQuery;
+import ru.mawshu.movietracker.dto.LibraryTombstone;
+import ru.mawshu.movietracker.dto.MovieResponse;
+import ru.mawshu.movietracker.dto.UserMovieResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
+import ru.mawshu.movietracker.exception.NotFoundException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class UserMovieRepositoryImpl implements UserMovieRepositoryCustom {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private enum Kind { TIMESTAMP, INTEGER, TEXT }
+
+    private record SortKey(String expression, Kind kind) {}
+
+    // Nullable columns are coalesced so the keyset comparison never meets a null.
+    private static final Map<String, SortKey> SORT_KEYS = Map.of(
+            "addedAt", new SortKey("um.created_at", Kind.TIMESTAMP),
+            "updatedAt", new SortKey("um.updated_at", Kind.TIMESTAMP),
+            "watchedAt", new SortKey("coalesce(um.watched_at, timestamp '1970-01-01 00:00:00')", Kind.TIMESTAMP),
+            "rating", new SortKey("coalesce(um.rating, -1)", Kind.INTEGER),
+            "title", new SortKey("m.title", Kind.TEXT),
+            "year", new SortKey("coalesce(m.year, 0)", Kind.INTEGER)
+    );
+
+    private static final String EXPORT_SQL = """
+            select um.id, um.status, um.rating, um.liked, um.watched_at, um.created_at, um.updated_at,
+                   m.id as movie_id, m.external_id, m.title, m.year, m.runtime_minutes, m.poster_url, m.overview
+            from user_movies um
+            join movies m on m.id = um.movie_id
+            where um.user_id = ?
+            order by um.id
+            """;
+
+    private static final String CHANGES_SQL = """
+            select um.id, um.status, um.rating, um.liked, um.watched_at, um.created_at, um.updated_at,
+                   m.id as movie_id, m.external_id, m.title, m.year, m.runtime_minutes, m.poster_url, m.overview
+            from user_movies um
+            join movies m on m.id = um.movie_id
+            where um.user_id = ? and um.change_version > ?
+            order by um.change_version, um.id
+            """;
+
+    private static final String UPSERT_SQL = """
+            insert into user_movies (user_id, movie_id, status, rating, liked, watched_at, created_at, updated_at, change_version)
+            values (?, ?, ?, ?, coalesce(?, false), ?, ?, ?, ?)
+            on conflict (user_id, movie_id) do update set
+                status = excluded.status,
+                rating = coalesce(?, user_movies.rating),
+                liked = coalesce(?, user_movies.liked),
+                watched_at = case when excluded.status = 'WATCHED'
+                                  then coalesce(?, user_movies.watched_at, excluded.watched_at)
+                             end,
+                updated_at = excluded.updated_at,
+                change_version = excluded.change_version
+            """;
+
+    private static final String PRUNE_FLOOR_SQL = """
+            update users set changes_floor = greatest(changes_floor, (
+                select max(t.change_version) from user_movie_tombstones t
+                where t.user_id = users.id and t.deleted_at < ?))
+            where exists (select 1 from user_movie_tombstones t where t.user_id = users.id and t.deleted_at < ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public UserMovieRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public CursorPage<UserMovieResponse> findLibraryPage(Long userId, LibraryQuery query) {
+        SortKey key = SORT_KEYS.get(query.getSort());
+        if (key == null) {
+            throw new BadRequestException("Unsupported sort: " + query.getSort());
+        }
+        boolean asc = "asc".equals(query.getDir());
+        int limit = query.getLimit();
+
+        StringBuilder sql = new StringBuilder("""
+                select um.id, um.status, um.rating, um.liked, um.watched_at, um.created_at, um.updated_at,
+                       m.id as movie_id, m.external_id, m.title, m.year, m.runtime_minutes, m.poster_url, m.overview,
+                """).append(key.expression()).append("""
+                 as sort_value
+                from user_movies um
+                join movies m on m.id = um.movie_id
+                where um.user_id = ?
+                """);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+
+        if (query.getStatus() != null) {
+            sql.append(" and um.status = ?");
+            args.add(query.getStatus().name());
+        }
+        if (query.getLiked() != null) {
+            sql.append(" and um.liked = ?");
+            args.add(query.getLiked());
+        }
+        if (query.getMinRating() != null) {
+            sql.append(" and um.rating >= ?");
+            args.add(query.getMinRating());
+        }
+        if (query.getCursor() != null && !query.getCursor().isBlank()) {
+            KeysetCursor cursor = KeysetCursor.decode(query.getCursor());
+            sql.append(" and (").append(key.expression()).append(", um.id) ")
+                    .append(asc ? ">" : "<").append(" (?, ?)");
+            args.add(bindValue(key.kind(), cursor.value()));
+            args.add(cursor.id());
+        }
+
+        String direction = asc ? " asc" : " desc";
+        sql.append(" order by ").append(key.expression()).append(direction)
+                .append(", um.id").append(direction)
+                .append(" limit ?");
+        args.add(limit + 1);
+
+        List<Row> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRow(rs, key.kind()), args.toArray());
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            Row last = rows.get(limit - 1);
+            nextCursor = new KeysetCursor(last.sortValue(), last.response().getId()).encode();
+        }
+        return new CursorPage<>(rows.stream().map(Row::response).toList(), nextCursor);
+    }
+
+    @Override
+    @Transactional
+    public void batchUpsert(Long userId, List<LibraryUpsert> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        long version = nextLibraryVersion(userId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            Timestamp watchedAt = row.watchedAt() == null ? null : Timestamp.valueOf(row.watchedAt());
+            ps.setLong(1, userId);
+            ps.setLong(2, row.movieId());
+            ps.setString(3, row.status().name());
+            ps.setObject(4, row.rating(), Types.INTEGER);
+            ps.setObject(5, row.liked(), Types.BOOLEAN);
+            ps.setTimestamp(6, row.status() == WatchStatus.WATCHED && watchedAt == null ? now : watchedAt);
+            ps.setTimestamp(7, now);
+            ps.setTimestamp(8, now);
+            ps.setLong(9, version);
+            ps.setObject(10, row.rating(), Types.INTEGER);
+            ps.setObject(11, row.liked(), Types.BOOLEAN);
+            ps.setTimestamp(12, watchedAt);
+        });
+    }
+
+    @Override
+    public long nextLibraryVersion(Long userId) {
+        jdbcTemplate.update("update users set library_version = library_version + 1 where id = ?", userId);
+        return findChangeCursor(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"))
+                .version();
+    }
+
+    @Override
+    public Optional<ChangeCursor> findChangeCursor(Long userId) {
+        return jdbcTemplate.query("select library_version, changes_floor from users where id = ?",
+                (rs, rowNum) -> new ChangeCursor(rs.getLong("library_version"), rs.getLong("changes_floor")),
+                userId).stream().findFirst();
+    }
+
+    @Override
+    public List<LibraryState> findLibraryStates(Long userId, Collection<String> externalIds) {
+        if (externalIds.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+                select m.external_id, um.status, um.liked
+                from user_movies um
+                join movies m on m.id = um.movie_id
+                where um.user_id = ? and m.external_id in (""" + String.join(", ", Collections.nCopies(externalIds.size(), "?")) + ")";
+        List<Object> args = new ArrayList<>(externalIds.size() + 1);
+        args.add(userId);
+        args.addAll(externalIds);
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new LibraryState(
+                rs.getString("external_id"),
+                WatchStatus.valueOf(rs.getString("status")),
+                rs.getBoolean("liked")), args.toArray());
+    }
+
+    @Override
+    public List<UserMovieResponse> findChangedSince(Long userId, long since) {
+        return jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) -> mapResponse(rs), userId, since);
+    }
+
+    @Override
+    public void insertTombstone(Long userId, Long userMovieId, Long movieId, long version, LocalDateTime deletedAt) {
+        jdbcTemplate.update("""
+                insert into user_movie_tombstones (user_movie_id, user_id, movie_id, change_version, deleted_at)
+                values (?, ?, ?, ?, ?)
+                """, userMovieId, userId, movieId, version, Timestamp.valueOf(deletedAt));
+    }
+
+    @Override
+    public List<LibraryTombstone> findTombstonesSince(Long userId, long since) {
+        return jdbcTemplate.query("""
+                select user_movie_id, movie_id, deleted_at from user_movie_tombstones
+                where user_id = ? and change_version > ?
+                order by change_version, user_movie_id
+                """, (rs, rowNum) -> new LibraryTombstone(
+                        rs.getLong("user_movie_id"),
+                        rs.getLong("movie_id"),
+                        rs.getTimestamp("deleted_at").toLocalDateTime()),
+                userId, since);
+    }
+
+    @Override
+    @Transactional
+    public int pruneTombstones(LocalDateTime cutoff) {
+        Timestamp before = Timestamp.valueOf(cutoff);
+        jdbcTemplate.update(PRUNE_FLOOR_SQL, before, before);
+        return jdbcTemplate.update("delete from user_movie_tombstones where deleted_at < ?", before);
+    }
+
+    @Override
+    public void streamLibrary(Long userId, Consumer<UserMovieResponse> consumer) {
+        streamingJdbcTemplate.query(EXPORT_SQL, (RowCallbackHandler) rs -> consumer.accept(mapResponse(rs)), userId);
+    }
+
+    private record Row(UserMovieResponse response, String sortValue) {}
+
+    private static Row mapRow(ResultSet rs, Kind kind) throws SQLException {
+        return new Row(mapResponse(rs), readSortValue(rs, kind));
+    }
+
+    private static UserMovieResponse mapResponse(ResultSet rs) throws SQLException {
+        MovieResponse movie = new MovieResponse(
+                rs.getLong("movie_id"),
+                rs.getString("external_id"),
+                rs.getString("title"),
+                rs.getObject("year", Integer.class),
+                rs.getObject("runtime_minutes", Integer.class),
+                rs.getString("poster_url"),
+                rs.getString("overview"));
+        return new UserMovieResponse(
+                rs.getLong("id"),
+                movie,
+                WatchStatus.valueOf(rs.getString("status")),
+                rs.getObject("rating", Integer.class),
+                rs.getBoolean("liked"),
+                toLocalDateTime(rs.getTimestamp("watched_at")),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                toLocalDateTime(rs.getTimestamp("updated_at")));
+    }
+
+    private static String readSortValue(ResultSet rs, Kind kind) throws SQLException {
+        return switch (kind) {
+            case TIMESTAMP -> rs.getTimestamp("sort_value").toLocalDateTime().toString();
+            case INTEGER -> String.valueOf(rs.getInt("sort_value"));
+            case TEXT -> rs.getString("sort_value");
+        };
+    }
+
+    private static Object bindValue(Kind kind, String value) {
+        try {
+            return switch (kind) {
+                case TIMESTAMP -> Timestamp.valueOf(LocalDateTime.parse(value));
+                case INTEGER -> Integer.parseInt(value);
+                case TEXT -> value;
+            };
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
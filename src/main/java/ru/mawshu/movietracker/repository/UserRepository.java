@@ -1,6 +1,10 @@
 package ru.mawshu.movietracker.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.mawshu.movietracker.domain.User;
 
 import java.util.Optional;
@@ -12,4 +16,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
 
+    // The version columns are deliberately not mapped on User, so saving a User never rewinds them.
+
+    @Query(value = "select library_version from users where id = :id", nativeQuery = true)
+    Optional<Long> findLibraryVersion(@Param("id") Long id);
+
+    @Query(value = "select watchlists_version from users where id = :id", nativeQuery = true)
+    Optional<Long> findWatchlistsVersion(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update users set watchlists_version = watchlists_version + 1 where id = :id", nativeQuery = true)
+    int bumpWatchlistsVersion(@Param("id") Long id);
 }
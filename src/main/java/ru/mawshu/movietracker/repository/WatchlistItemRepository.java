@@ -1,17 +1,65 @@
 package ru.mawshu.movietracker.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.mawshu.movietracker.domain.WatchlistItem;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Long> {
 
-    @Query("select max(i.position) from WatchlistItem i where i.watchlist.id = :watchlistId")
-    Integer findMaxPosition(@Param("watchlistId") Long watchlistId);
+    interface WatchlistMovie {
+        Long getWatchlistId();
+        Long getMovieId();
+    }
+
+    @Query("select i.id from WatchlistItem i where i.watchlist.id = :watchlistId order by i.position, i.id")
+    List<Long> findIdsByWatchlistId(@Param("watchlistId") Long watchlistId);
+
+    @Query("select i.position from WatchlistItem i where i.id = :id and i.watchlist.id = :watchlistId")
+    Optional<Integer> findPosition(@Param("id") Long id, @Param("watchlistId") Long watchlistId);
+
+    @Modifying
+    @Query("update WatchlistItem i set i.position = :position where i.id = :id")
+    int updatePosition(@Param("id") Long id, @Param("position") int position);
+
+    @Query("""
+            select min(i.position) from WatchlistItem i
+            where i.watchlist.id = :watchlistId and i.position > :position and i.id <> :excludedId
+            """)
+    Integer findNextPosition(@Param("watchlistId") Long watchlistId,
+                             @Param("position") int position,
+                             @Param("excludedId") Long excludedId);
+
+    @Query("""
+            select max(i.position) from WatchlistItem i
+            where i.watchlist.id = :watchlistId and i.position < :position and i.id <> :excludedId
+            """)
+    Integer findPreviousPosition(@Param("watchlistId") Long watchlistId,
+                                 @Param("position") int position,
+                                 @Param("excludedId") Long excludedId);
+
+    @Query("select i.movie.id from WatchlistItem i where i.watchlist.id = :watchlistId and i.movie.id in :movieIds")
+    Set<Long> findMovieIdsInWatchlist(@Param("watchlistId") Long watchlistId, @Param("movieIds") Collection<Long> movieIds);
+
+    @Query("""
+            select i from WatchlistItem i join fetch i.movie
+            where i.watchlist.id = :watchlistId and i.movie.id in :movieIds
+            order by i.position
+            """)
+    List<WatchlistItem> findWithMovieByWatchlistIdAndMovieIdIn(@Param("watchlistId") Long watchlistId,
+                                                               @Param("movieIds") Collection<Long> movieIds);
+
+    @Query("""
+            select i.watchlist.id as watchlistId, i.movie.id as movieId from WatchlistItem i
+            where i.watchlist.user.id = :userId
+            """)
+    List<WatchlistMovie> findWatchlistMoviesByUserId(@Param("userId") Long userId);
 
     Optional<WatchlistItem> findByIdAndWatchlistId(Long id, Long watchlistId);
 
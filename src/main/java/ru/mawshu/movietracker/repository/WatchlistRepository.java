@@ -1,6 +1,8 @@
 package ru.mawshu.movietracker.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import ru.mawshu.movietracker.domain.Watchlist;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,14 +10,13 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
-public interface WatchlistRepository extends JpaRepository<Watchlist, Long> {
+public interface WatchlistRepository extends JpaRepository<Watchlist, Long>, WatchlistRepositoryCustom {
     List<Watchlist> findByUserId(Long userId);
 
-    @Query("""
-    select w from Watchlist w
-    left join fetch w.items i
-    left join fetch i.movie
-    where w.id = :id
-""")
-    Optional<Watchlist> findByIdWithItems(@Param("id") Long id);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from Watchlist w where w.id = :id")
+    Optional<Watchlist> findByIdForUpdate(@Param("id") Long id);
+
+    @Query(value = "select version from watchlists where id = :id", nativeQuery = true)
+    Optional<Long> findVersion(@Param("id") Long id);
 }
@@ -0,0 +1,60 @@
+package ru.mawshu.movietracker.repository;
+
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.WatchlistItemResponse;
+import ru.mawshu.movietracker.dto.WatchlistSummaryResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface WatchlistRepositoryCustom {
+
+    /**
+     * One row per watchlist item, or a single row with a null item for an empty watchlist.
+     */
+    record WatchlistExportRow(Long watchlistId, String title, String description, LocalDateTime createdAt,
+                              WatchlistItemResponse item) {}
+
+    /**
+     * The user's watchlists with their item counts and up to {@code previewSize} poster URLs of the
+     * first items that have one, in a single query. Items themselves are not loaded.
+     */
+    List<WatchlistSummaryResponse> findSummariesByUserId(Long userId, int previewSize);
+
+    /**
+     * One page of the watchlist's items in position order, resuming after {@code cursor} when given.
+     */
+    CursorPage<WatchlistItemResponse> findItemsPage(Long watchlistId, String cursor, int limit);
+
+    /**
+     * Feeds the user's watchlists and their items to {@code consumer} ordered by watchlist id
+     * and item position, without collecting the rows. Must run inside a transaction for the
+     * fetch size to take effect.
+     */
+    void streamUserWatchlists(Long userId, Consumer<WatchlistExportRow> consumer);
+
+    /**
+     * Sets each listed item's position to {@code (index + 1) * step} with a single UPDATE.
+     * Items of the watchlist that are not listed keep their position.
+     */
+    int reorderItems(Long watchlistId, List<Long> orderedItemIds, int step);
+
+    /**
+     * Advances the watchlist's append counter by {@code step} and returns the new value. The counter
+     * row stays locked until the caller's transaction ends, so concurrent appends get distinct values.
+     */
+    int nextPosition(Long watchlistId, int step);
+
+    /**
+     * Bumps the version of the watchlist and of its owner's watchlist collection,
+     * which is what their ETags are derived from.
+     */
+    void bumpVersion(Long watchlistId);
+
+    /**
+     * Inserts one item per movie with positions {@code firstPosition}, {@code firstPosition + step}, ...
+     * as a single JDBC batch.
+     */
+    void batchInsertItems(Long watchlistId, List<Long> movieIds, int firstPosition, int step);
+}
@@ -0,0 +1,251 @@
+package ru.mawshu.movietracker.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.MovieResponse;
+import ru.mawshu.movietracker.dto.WatchlistItemResponse;
+import ru.mawshu.movietracker.dto.WatchlistSummaryResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class WatchlistRepositoryImpl implements WatchlistRepositoryCustom {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String EXPORT_SQL = """
+            select w.id as watchlist_id, w.title as watchlist_title, w.description, w.created_at,
+                   i.id as item_id, i.position, i.added_at,
+                   m.id as movie_id, m.external_id, m.title, m.year, m.runtime_minutes, m.poster_url, m.overview
+            from watchlists w
+            left join watchlist_items i on i.watchlist_id = w.id
+            left join movies m on m.id = i.movie_id
+            where w.user_id = ?
+            order by w.id, i.position, i.id
+            """;
+
+    private static final String ITEMS_PAGE_SQL = """
+            select i.id as item_id, i.position, i.added_at,
+                   m.id as movie_id, m.external_id, m.title, m.year, m.runtime_minutes, m.poster_url, m.overview
+            from watchlist_items i
+            join movies m on m.id = i.movie_id
+            where i.watchlist_id = ? and (i.position, i.id) > (?, ?)
+            order by i.position, i.id
+            limit ?
+            """;
+
+    private static final String SUMMARY_SQL = """
+            select w.id, w.title, w.description, w.created_at,
+                   coalesce(r.item_count, 0) as item_count, r.poster_url
+            from watchlists w
+            left join (
+                select i.watchlist_id, m.poster_url,
+                       count(*) over (partition by i.watchlist_id) as item_count,
+                       row_number() over (partition by i.watchlist_id
+                                          order by m.poster_url is null, i.position, i.id) as rn
+                from watchlist_items i
+                join watchlists uw on uw.id = i.watchlist_id
+                join movies m on m.id = i.movie_id
+                where uw.user_id = ?
+            ) r on r.watchlist_id = w.id and r.rn <= ?
+            where w.user_id = ?
+            order by w.id, r.rn
+            """;
+
+    private static final String REORDER_SQL = """
+            update watchlist_items i
+            set position = v.position
+            from unnest(?::bigint[], ?::int[]) as v(id, position)
+            where i.watchlist_id = ? and i.id = v.id
+            """;
+
+    private static final String INSERT_ITEM_SQL = """
+            insert into watchlist_items (watchlist_id, movie_id, position, added_at)
+            values (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private volatile Boolean postgres;
+
+    public WatchlistRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public CursorPage<WatchlistItemResponse> findItemsPage(Long watchlistId, String cursor, int limit) {
+        int afterPosition = Integer.MIN_VALUE;
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor decoded = KeysetCursor.decode(cursor);
+            try {
+                afterPosition = Integer.parseInt(decoded.value());
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            afterId = decoded.id();
+        }
+
+        List<WatchlistItemResponse> items = jdbcTemplate.query(ITEMS_PAGE_SQL, (rs, rowNum) -> mapItem(rs),
+                watchlistId, afterPosition, afterId, limit + 1);
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            WatchlistItemResponse last = items.get(limit - 1);
+            nextCursor = new KeysetCursor(String.valueOf(last.getPosition()), last.getId()).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    @Override
+    public List<WatchlistSummaryResponse> findSummariesByUserId(Long userId, int previewSize) {
+        Map<Long, WatchlistSummaryResponse> summaries = new LinkedHashMap<>();
+        jdbcTemplate.query(SUMMARY_SQL, (RowCallbackHandler) rs -> {
+            WatchlistSummaryResponse summary = summaries.get(rs.getLong("id"));
+            if (summary == null) {
+                summary = new WatchlistSummaryResponse(
+                        rs.getLong("id"),
+                        rs.getString("title"),
+                        rs.getString("description"),
+                        toLocalDateTime(rs.getTimestamp("created_at")),
+                        rs.getInt("item_count"),
+                        new ArrayList<>(previewSize));
+                summaries.put(summary.getId(), summary);
+            }
+            String posterUrl = rs.getString("poster_url");
+            if (posterUrl != null) {
+                summary.getPosterUrls().add(posterUrl);
+            }
+        }, userId, previewSize, userId);
+        return new ArrayList<>(summaries.values());
+    }
+
+    @Override
+    public void streamUserWatchlists(Long userId, Consumer<WatchlistExportRow> consumer) {
+        streamingJdbcTemplate.query(EXPORT_SQL, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)), userId);
+    }
+
+    @Override
+    public int reorderItems(Long watchlistId, List<Long> orderedItemIds, int step) {
+        if (orderedItemIds.isEmpty()) {
+            return 0;
+        }
+
+        if (isPostgres()) {
+            Long[] ids = orderedItemIds.toArray(new Long[0]);
+            Integer[] positions = new Integer[ids.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = (i + 1) * step;
+            }
+            return jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(REORDER_SQL);
+                ps.setArray(1, connection.createArrayOf("bigint", ids));
+                ps.setArray(2, connection.createArrayOf("integer", positions));
+                ps.setLong(3, watchlistId);
+                return ps;
+            });
+        }
+
+        StringBuilder sql = new StringBuilder("update watchlist_items set position = case id");
+        List<Object> args = new ArrayList<>(orderedItemIds.size() * 2 + 1);
+        for (int i = 0; i < orderedItemIds.size(); i++) {
+            sql.append(" when ? then ?");
+            args.add(orderedItemIds.get(i));
+            args.add((i + 1) * step);
+        }
+        sql.append(" else position end where watchlist_id = ?");
+        args.add(watchlistId);
+        return jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    @Override
+    public int nextPosition(Long watchlistId, int step) {
+        jdbcTemplate.update("update watchlists set last_position = last_position + ? where id = ?", step, watchlistId);
+        return jdbcTemplate.queryForObject("select last_position from watchlists where id = ?", Integer.class, watchlistId);
+    }
+
+    @Override
+    public void bumpVersion(Long watchlistId) {
+        jdbcTemplate.update("update watchlists set version = version + 1 where id = ?", watchlistId);
+        jdbcTemplate.update("""
+                update users set watchlists_version = watchlists_version + 1
+                where id = (select user_id from watchlists where id = ?)
+                """, watchlistId);
+    }
+
+    @Override
+    public void batchInsertItems(Long watchlistId, List<Long> movieIds, int firstPosition, int step) {
+        if (movieIds.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, watchlistId);
+                ps.setLong(2, movieIds.get(i));
+                ps.setInt(3, firstPosition + i * step);
+                ps.setTimestamp(4, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return movieIds.size();
+            }
+        });
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+
+    private static WatchlistExportRow mapRow(ResultSet rs) throws SQLException {
+        rs.getLong("item_id");
+        WatchlistItemResponse item = rs.wasNull() ? null : mapItem(rs);
+        return new WatchlistExportRow(
+                rs.getLong("watchlist_id"),
+                rs.getString("watchlist_title"),
+                rs.getString("description"),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                item);
+    }
+
+    private static WatchlistItemResponse mapItem(ResultSet rs) throws SQLException {
+        MovieResponse movie = new MovieResponse(
+                rs.getLong("movie_id"),
+                rs.getString("external_id"),
+                rs.getString("title"),
+                rs.getObject("year", Integer.class),
+                rs.getObject("runtime_minutes", Integer.class),
+                rs.getString("poster_url"),
+                rs.getString("overview"));
+        return new WatchlistItemResponse(rs.getLong("item_id"), rs.getInt("position"),
+                toLocalDateTime(rs.getTimestamp("added_at")), movie);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
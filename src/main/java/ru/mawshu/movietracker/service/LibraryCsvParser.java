@@ -0,0 +1,144 @@
+package ru.mawshu.movietracker.service;
+
+import ru.mawshu.movietracker.dto.LibraryImportEntry;
+import ru.mawshu.movietracker.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads library CSV files with a header row. Columns are matched by name, ignoring case and
+ * punctuation: externalId (or tmdbId), status, rating, liked, watchedAt. Quoted fields may
+ * contain commas, doubled quotes and line breaks; a row is reported by the line it starts on.
+ */
+final class LibraryCsvParser {
+
+    record Row(int line, LibraryImportEntry entry, String error) {}
+
+    private record Record(int line, List<String> fields) {}
+
+    private LibraryCsvParser() {}
+
+    static List<Row> parse(String csv) {
+        List<Record> records = readRecords(csv);
+        if (records.isEmpty()) {
+            throw new BadRequestException("CSV is empty");
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = records.get(0).fields();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(normalize(i == 0 ? stripBom(header.get(i)) : header.get(i)), i);
+        }
+        Integer externalIdColumn = columns.containsKey("externalid") ? columns.get("externalid") : columns.get("tmdbid");
+        if (externalIdColumn == null) {
+            throw new BadRequestException("CSV header must contain an externalId column");
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (Record record : records.subList(1, records.size())) {
+            int line = record.line();
+            List<String> fields = record.fields();
+            try {
+                String rating = field(fields, columns.get("rating"));
+                String liked = field(fields, columns.get("liked"));
+                rows.add(new Row(line, new LibraryImportEntry(
+                        field(fields, externalIdColumn),
+                        field(fields, columns.get("status")),
+                        rating == null ? null : Integer.valueOf(rating),
+                        liked == null ? null : parseBoolean(liked),
+                        field(fields, columns.get("watchedat"))), null));
+            } catch (IllegalArgumentException e) {
+                rows.add(new Row(line, null, "Malformed value: " + e.getMessage()));
+            }
+        }
+        return rows;
+    }
+
+    // Splits into records while tracking quotes, so a line break inside a quoted field stays
+    // part of that field instead of ending the row. Blank lines between records are dropped.
+    private static List<Record> readRecords(String csv) {
+        List<Record> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        int line = 1;
+        int recordLine = 1;
+        int quoteLine = 0;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (c == '\r') {
+                if (i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                    continue;
+                }
+                c = '\n';
+            }
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    if (c == '\n') line++;
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                quoteLine = line;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else if (c == '\n') {
+                fields.add(current.toString());
+                current.setLength(0);
+                addRecord(records, recordLine, fields);
+                fields = new ArrayList<>();
+                line++;
+                recordLine = line;
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BadRequestException("CSV has an unterminated quoted field starting on line " + quoteLine);
+        }
+        fields.add(current.toString());
+        addRecord(records, recordLine, fields);
+        return records;
+    }
+
+    private static void addRecord(List<Record> records, int line, List<String> fields) {
+        if (fields.size() == 1 && fields.get(0).isBlank()) {
+            return;
+        }
+        records.add(new Record(line, fields));
+    }
+
+    private static String field(List<String> fields, Integer column) {
+        if (column == null || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Boolean parseBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "1" -> true;
+            case "false", "no", "0" -> false;
+            default -> throw new IllegalArgumentException(value);
+        };
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+}
@@ -0,0 +1,170 @@
+package ru.mawshu.movietracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
+import ru.mawshu.movietracker.dto.LibraryImportEntry;
+import ru.mawshu.movietracker.dto.LibraryImportError;
+import ru.mawshu.movietracker.dto.LibraryImportResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
+import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom.LibraryUpsert;
+import ru.mawshu.movietracker.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+public class LibraryImportService {
+
+    static final int MAX_ROWS = 20_000;
+    // Movies we do not hold yet are fetched from TMDB inside the request, at up to 40 a second;
+    // this keeps one import within about half a minute. Rows over it are reported and can be resent.
+    static final int MAX_NEW_MOVIES = 1_000;
+    static final int UPSERT_CHUNK_SIZE = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(LibraryImportService.class);
+
+    private final UserRepository userRepository;
+    private final UserMovieRepository userMovieRepository;
+    private final MovieBatchImportService movieBatchImportService;
+    private final LibraryMembershipIndex membershipIndex;
+
+    public LibraryImportService(UserRepository userRepository,
+                                UserMovieRepository userMovieRepository,
+                                MovieBatchImportService movieBatchImportService,
+                                LibraryMembershipIndex membershipIndex) {
+        this.userRepository = userRepository;
+        this.userMovieRepository = userMovieRepository;
+        this.movieBatchImportService = movieBatchImportService;
+        this.membershipIndex = membershipIndex;
+    }
+
+    public LibraryImportResponse importEntries(Long userId, List<LibraryImportEntry> entries) {
+        List<LibraryCsvParser.Row> rows = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            rows.add(new LibraryCsvParser.Row(i + 1, entries.get(i), null));
+        }
+        return importRows(userId, rows);
+    }
+
+    public LibraryImportResponse importCsv(Long userId, String csv) {
+        return importRows(userId, LibraryCsvParser.parse(csv));
+    }
+
+    private record Pending(int row, WatchStatus status, Integer rating, Boolean liked, LocalDateTime watchedAt) {}
+
+    private LibraryImportResponse importRows(Long userId, List<LibraryCsvParser.Row> rows) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
+        }
+        if (rows.size() > MAX_ROWS) {
+            throw new BadRequestException("At most " + MAX_ROWS + " rows can be imported at once");
+        }
+
+        List<LibraryImportError> errors = new ArrayList<>();
+        // A later row for the same movie wins, as it would with one-by-one adds.
+        Map<String, Pending> pending = new LinkedHashMap<>();
+        for (LibraryCsvParser.Row row : rows) {
+            if (row.error() != null) {
+                errors.add(new LibraryImportError(row.line(), null, row.error()));
+                continue;
+            }
+            LibraryImportEntry entry = row.entry();
+            String externalId = entry.getExternalId() == null ? "" : entry.getExternalId().strip();
+            try {
+                if (externalId.isEmpty()) {
+                    throw new IllegalArgumentException("externalId is required");
+                }
+                pending.remove(externalId);
+                pending.put(externalId, toPending(row.line(), entry));
+            } catch (IllegalArgumentException e) {
+                errors.add(new LibraryImportError(row.line(), externalId.isEmpty() ? null : externalId, e.getMessage()));
+            }
+        }
+
+        int moviesImported = 0;
+        List<LibraryUpsert> upserts = new ArrayList<>(pending.size());
+        List<Integer> upsertRows = new ArrayList<>(pending.size());
+        List<String> upsertIds = new ArrayList<>(pending.size());
+        if (!pending.isEmpty()) {
+            BatchImportResponse movies = movieBatchImportService.importMovies(new ArrayList<>(pending.keySet()), MAX_NEW_MOVIES);
+            moviesImported = movies.getImported();
+            for (BatchImportResult result : movies.getResults()) {
+                Pending p = pending.get(result.getExternalId());
+                if (result.getStatus() == BatchImportResult.Status.FAILED) {
+                    errors.add(new LibraryImportError(p.row(), result.getExternalId(), result.getError()));
+                } else {
+                    upserts.add(new LibraryUpsert(result.getMovieId(), p.status(), p.rating(), p.liked(), p.watchedAt()));
+                    upsertRows.add(p.row());
+                    upsertIds.add(result.getExternalId());
+                }
+            }
+        }
+
+        // Each chunk commits on its own; a failed one is reported row by row and the rest still go in.
+        int saved = 0;
+        for (int from = 0; from < upserts.size(); from += UPSERT_CHUNK_SIZE) {
+            int to = Math.min(from + UPSERT_CHUNK_SIZE, upserts.size());
+            try {
+                userMovieRepository.batchUpsert(userId, upserts.subList(from, to));
+                saved += to - from;
+            } catch (DataAccessException e) {
+                log.warn("Library import chunk of {} rows failed for user {}", to - from, userId, e);
+                for (int i = from; i < to; i++) {
+                    errors.add(new LibraryImportError(upsertRows.get(i), upsertIds.get(i), "Could not be saved, submit it again"));
+                }
+            }
+        }
+        if (saved > 0) {
+            membershipIndex.invalidate(userId);
+        }
+
+        errors.sort(Comparator.comparingInt(LibraryImportError::getRow));
+        return new LibraryImportResponse(rows.size(), saved, moviesImported, errors);
+    }
+
+    private static Pending toPending(int row, LibraryImportEntry entry) {
+        if (entry.getRating() != null && (entry.getRating() < 0 || entry.getRating() > 10)) {
+            throw new IllegalArgumentException("rating must be between 0 and 10");
+        }
+        LocalDateTime watchedAt = parseWatchedAt(entry.getWatchedAt());
+
+        WatchStatus status;
+        if (entry.getStatus() == null || entry.getStatus().isBlank()) {
+            status = watchedAt != null ? WatchStatus.WATCHED : WatchStatus.PLANNED;
+        } else {
+            try {
+                status = WatchStatus.valueOf(entry.getStatus().strip().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown status: " + entry.getStatus());
+            }
+        }
+        return new Pending(row, status, entry.getRating(), entry.getLiked(),
+                status == WatchStatus.WATCHED ? watchedAt : null);
+    }
+
+    private static LocalDateTime parseWatchedAt(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.strip();
+        try {
+            return text.length() == 10 ? LocalDate.parse(text).atStartOfDay() : LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("watchedAt must be an ISO date or date-time: " + value);
+        }
+    }
+}
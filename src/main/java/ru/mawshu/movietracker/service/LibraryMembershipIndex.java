@@ -0,0 +1,161 @@
+package ru.mawshu.movietracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserRepository;
+import ru.mawshu.movietracker.repository.WatchlistItemRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user in-memory answer to "which of these movies does the user have, and in which watchlists".
+ * A user's entry is built from user_movies/watchlist_items on first use and dropped by the write
+ * paths once their transaction commits, so the next check rebuilds it from committed rows. Entries
+ * also expire after {@code movies.membership.ttl} and are evicted by size when too many users are held.
+ * Every set is a sorted {@code long[]} of movie ids searched by bisection, so checking a page
+ * of results is a handful of array reads.
+ */
+@Component
+public class LibraryMembershipIndex {
+
+    static final String CACHE_NAME = "library.membership";
+
+    private final UserRepository userRepository;
+    private final UserMovieRepository userMovieRepository;
+    private final WatchlistItemRepository watchlistItemRepository;
+    private final Cache<Long, Membership> cache;
+
+    public LibraryMembershipIndex(UserRepository userRepository,
+                                  UserMovieRepository userMovieRepository,
+                                  WatchlistItemRepository watchlistItemRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${movies.membership.max-users:10000}") long maxUsers,
+                                  @Value("${movies.membership.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userMovieRepository = userMovieRepository;
+        this.watchlistItemRepository = watchlistItemRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Membership get(Long userId) {
+        return cache.get(userId, this::load);
+    }
+
+    /**
+     * Call from every write to the user's library or watchlist contents. The entry is dropped rather
+     * than patched: after-commit hooks of two writes run in no fixed order, so replayed patches could
+     * land in the wrong order, while a reload always ends on the committed rows. A load racing with
+     * the drop blocks on the same key and is dropped once it finishes.
+     */
+    public void invalidate(Long userId) {
+        afterCommit(() -> cache.invalidate(userId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Membership load(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
+        }
+
+        Map<WatchStatus, long[]> byStatus = new EnumMap<>(WatchStatus.class);
+        for (WatchStatus status : WatchStatus.values()) {
+            byStatus.put(status, sorted(userMovieRepository.findMovieIdsByUserIdAndStatus(userId, status)));
+        }
+
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        for (WatchlistItemRepository.WatchlistMovie row : watchlistItemRepository.findWatchlistMoviesByUserId(userId)) {
+            grouped.computeIfAbsent(row.getWatchlistId(), id -> new ArrayList<>()).add(row.getMovieId());
+        }
+        Map<Long, long[]> byWatchlist = new HashMap<>();
+        grouped.forEach((watchlistId, movieIds) -> byWatchlist.put(watchlistId, sorted(movieIds)));
+
+        return new Membership(byStatus, byWatchlist);
+    }
+
+    private static long[] sorted(Collection<Long> ids) {
+        long[] out = new long[ids.size()];
+        int i = 0;
+        for (Long id : ids) {
+            out[i++] = id;
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    /**
+     * Immutable snapshot of one user's memberships.
+     */
+    public static final class Membership {
+
+        private static final long[] EMPTY = new long[0];
+
+        private final Map<WatchStatus, long[]> byStatus;
+        private final Map<Long, long[]> byWatchlist;
+
+        Membership(Map<WatchStatus, long[]> byStatus, Map<Long, long[]> byWatchlist) {
+            this.byStatus = byStatus;
+            this.byWatchlist = byWatchlist;
+        }
+
+        /**
+         * The movie's library status, or {@code null} if the user has not added it.
+         */
+        public WatchStatus status(long movieId) {
+            for (Map.Entry<WatchStatus, long[]> e : byStatus.entrySet()) {
+                if (Arrays.binarySearch(e.getValue(), movieId) >= 0) {
+                    return e.getKey();
+                }
+            }
+            return null;
+        }
+
+        public boolean inWatchlist(long watchlistId, long movieId) {
+            return Arrays.binarySearch(byWatchlist.getOrDefault(watchlistId, EMPTY), movieId) >= 0;
+        }
+
+        public List<Long> watchlistsContaining(long movieId) {
+            List<Long> watchlistIds = new ArrayList<>();
+            byWatchlist.forEach((watchlistId, movieIds) -> {
+                if (Arrays.binarySearch(movieIds, movieId) >= 0) {
+                    watchlistIds.add(watchlistId);
+                }
+            });
+            Collections.sort(watchlistIds);
+            return watchlistIds;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.mawshu.movietracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Forgets library deletions older than the retention period. Pruning raises the affected users'
+ * change floor, so a delta sync cursor from before the forgotten deletions is answered with a resync.
+ */
+@Component
+public class LibraryTombstonePruner {
+
+    private static final Logger log = LoggerFactory.getLogger(LibraryTombstonePruner.class);
+
+    private final UserMovieRepository userMovieRepository;
+    private final Duration retention;
+
+    public LibraryTombstonePruner(UserMovieRepository userMovieRepository,
+                                  @Value("${movies.changes.tombstone-retention:30d}") Duration retention) {
+        this.userMovieRepository = userMovieRepository;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${movies.changes.prune-interval:1h}", initialDelayString = "${movies.changes.prune-interval:1h}")
+    public void prune() {
+        int pruned = userMovieRepository.pruneTombstones(LocalDateTime.now().minus(retention));
+        if (pruned > 0) {
+            log.info("Pruned {} library tombstones older than {}", pruned, retention);
+        }
+    }
+}
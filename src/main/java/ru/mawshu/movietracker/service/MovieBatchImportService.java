@@ -0,0 +1,110 @@
+package ru.mawshu.movietracker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import ru.mawshu.movietracker.domain.Movie;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
+import ru.mawshu.movietracker.integration.ExternalMovieApiClient;
+import ru.mawshu.movietracker.integration.TmdbMovie;
+import ru.mawshu.movietracker.repository.MovieRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class MovieBatchImportService {
+
+    private final MovieRepository movieRepository;
+    private final ExternalMovieApiClient externalMovieApiClient;
+    private final SimpleAsyncTaskExecutor fetchExecutor;
+
+    public MovieBatchImportService(MovieRepository movieRepository,
+                                   ExternalMovieApiClient externalMovieApiClient,
+                                   @Value("${movies.import.parallelism:8}") int parallelism,
+                                   Environment environment) {
+        this.movieRepository = movieRepository;
+        this.externalMovieApiClient = externalMovieApiClient;
+        this.fetchExecutor = new SimpleAsyncTaskExecutor("movie-import-");
+        this.fetchExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        this.fetchExecutor.setConcurrencyLimit(parallelism);
+    }
+
+    public BatchImportResponse importMovies(List<String> externalIds) {
+        return importMovies(externalIds, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Fetches at most {@code maxFetches} of the movies we do not hold yet from TMDB; the rest are
+     * reported as failed without a request, and a later call picks them up.
+     */
+    public BatchImportResponse importMovies(List<String> externalIds, int maxFetches) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String externalId : externalIds) {
+            ids.add(externalId.trim());
+        }
+
+        Map<String, Movie> existing = movieRepository.findByExternalIdIn(ids).stream()
+                .collect(Collectors.toMap(Movie::getExternalId, Function.identity()));
+
+        Map<String, String> errors = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Movie>> fetches = new LinkedHashMap<>();
+        for (String id : ids) {
+            if (existing.containsKey(id)) {
+                continue;
+            }
+            if (fetches.size() < maxFetches) {
+                fetches.put(id, CompletableFuture.supplyAsync(() -> fetchMovie(id), fetchExecutor));
+            } else {
+                errors.put(id, "Not fetched: too many new movies at once, submit it again");
+            }
+        }
+
+        List<Movie> fetched = new ArrayList<>();
+        fetches.forEach((id, future) -> {
+            try {
+                fetched.add(future.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                errors.put(id, cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+            }
+        });
+
+        movieRepository.batchInsert(fetched);
+
+        Map<String, Movie> imported = fetched.isEmpty() ? Map.of()
+                : movieRepository.findByExternalIdIn(fetched.stream().map(Movie::getExternalId).toList()).stream()
+                .collect(Collectors.toMap(Movie::getExternalId, Function.identity()));
+
+        List<BatchImportResult> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (existing.containsKey(id)) {
+                results.add(BatchImportResult.existing(id, existing.get(id).getId()));
+            } else if (imported.containsKey(id)) {
+                results.add(BatchImportResult.imported(id, imported.get(id).getId()));
+            } else {
+                results.add(BatchImportResult.failed(id, errors.getOrDefault(id, "Movie not found after import")));
+            }
+        }
+        return new BatchImportResponse(results);
+    }
+
+    private Movie fetchMovie(String externalId) {
+        TmdbMovie details = externalMovieApiClient.getMovieDetails(externalId);
+        Movie movie = MovieCatalogService.toMovie(externalId, details);
+        movie.setCreatedAt(LocalDateTime.now());
+        return movie;
+    }
+}
@@ -1,29 +1,66 @@
 package ru.mawshu.movietracker.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mawshu.movietracker.domain.Movie;
 import ru.mawshu.movietracker.repository.MovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom.LibraryState;
 import ru.mawshu.movietracker.dto.MovieSearchItem;
 import ru.mawshu.movietracker.dto.MovieResponse;
 import ru.mawshu.movietracker.integration.ExternalMovieApiClient;
+import ru.mawshu.movietracker.integration.TmdbMovie;
+import ru.mawshu.movietracker.integration.TmdbSearchPage;
 import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.exception.UpstreamUnavailableException;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class MovieCatalogService {
 
+    /**
+     * Where {@link #searchMovies} looks: TMDB only, our own catalog only, or both as one list,
+     * our catalog's best hits first and then TMDB's hits that are not among them.
+     */
+    public enum SearchMode { TMDB, LOCAL, BLEND }
+
+    // How many of our own hits a blended search puts ahead of TMDB's; the rest still come through TMDB.
+    static final int BLEND_LOCAL_HITS = 100;
+    private static final int TMDB_PAGE_SIZE = 20;
+
     private final MovieRepository movieRepository;
+    private final UserMovieRepository userMovieRepository;
     private final ExternalMovieApiClient externalMovieApiClient;
-
-    public MovieCatalogService(MovieRepository movieRepository, ExternalMovieApiClient externalMovieApiClient) {
+    private final TransactionTemplate importTransaction;
+    private final SearchMode searchMode;
+    private final SingleFlight<String, Movie> importFlights = new SingleFlight<>();
+
+    public MovieCatalogService(MovieRepository movieRepository,
+                               UserMovieRepository userMovieRepository,
+                               ExternalMovieApiClient externalMovieApiClient,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${movies.search.mode:blend}") SearchMode searchMode) {
         this.movieRepository = movieRepository;
+        this.userMovieRepository = userMovieRepository;
+        this.searchMode = searchMode;
         this.externalMovieApiClient = externalMovieApiClient;
+        // The insert must be committed before waiting callers are released,
+        // otherwise they could not see the row from their own transactions.
+        // Callers are expected to hold no transaction of their own, so this takes the only connection.
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        this.importTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
 
@@ -42,40 +79,123 @@ public class MovieCatalogService {
     }
 
     public List<MovieSearchItem> searchMovies(String query, Integer year, int page, int size) {
-        Map response = externalMovieApiClient.searchMovies(query, year, page);
+        return searchMovies(query, year, page, size, null);
+    }
 
-        Object resultsObj = response.get("results");
-        if (!(resultsObj instanceof List<?> results)) {
-            return List.of();
+    /**
+     * Same as the four-argument search, but when {@code userId} is given every hit also carries
+     * that user's library status and liked flag, looked up for the whole page at once.
+     */
+    public List<MovieSearchItem> searchMovies(String query, Integer year, int page, int size, Long userId) {
+        List<MovieSearchItem> items = findMovies(query, year, page, size);
+        if (userId != null) {
+            annotateWithLibrary(items, userId);
         }
+        return items;
+    }
 
-        List<MovieSearchItem> items = new ArrayList<>();
-        int limit = Math.min(size, results.size());
+    private void annotateWithLibrary(List<MovieSearchItem> items, Long userId) {
+        Set<String> externalIds = new HashSet<>();
+        for (MovieSearchItem item : items) {
+            if (item.getExternalId() != null) {
+                externalIds.add(item.getExternalId());
+            }
+        }
+        Map<String, LibraryState> states = new HashMap<>();
+        for (LibraryState state : userMovieRepository.findLibraryStates(userId, externalIds)) {
+            states.put(state.externalId(), state);
+        }
+        for (MovieSearchItem item : items) {
+            LibraryState state = states.get(item.getExternalId());
+            if (state != null) {
+                item.setLibraryState(state.status(), state.liked());
+            }
+        }
+    }
 
-        for (int i = 0; i < limit; i++) {
-            Object rowObj = results.get(i);
-            if (!(rowObj instanceof Map<?, ?>)) continue;
-            Map<String, Object> row = (Map<String, Object>) rowObj;
+    private List<MovieSearchItem> findMovies(String query, Integer year, int page, int size) {
+        int offset = (page - 1) * size;
+        if (searchMode == SearchMode.TMDB) {
+            try {
+                return searchTmdb(query, year, page, size);
+            } catch (UpstreamUnavailableException e) {
+                return movieRepository.searchLocal(query, year, size, offset);
+            }
+        }
 
-            Object idObj = row.get("id");
-            String externalId = idObj == null ? null : String.valueOf(idObj);
+        if (searchMode == SearchMode.LOCAL) {
+            return movieRepository.searchLocal(query, year, size, offset);
+        }
 
-            String title = (String) row.getOrDefault("title", "");
-            String releaseDate = (String) row.get("release_date");
-            Integer parsedYear = parseYear(releaseDate);
+        return searchBlended(query, year, offset, size);
+    }
 
-            String overview = (String) row.getOrDefault("overview", "");
+    /**
+     * One page of the blended list. A page our own hits fill never reaches TMDB. Past them, TMDB's
+     * pages are walked from the first one to find where this page starts once our hits are skipped;
+     * the earlier pages are normally still in the search cache from the client's previous requests.
+     */
+    private List<MovieSearchItem> searchBlended(String query, Integer year, int offset, int size) {
+        int localEnd = Math.min(offset + size, BLEND_LOCAL_HITS);
+        List<MovieSearchItem> local = offset < localEnd
+                ? movieRepository.searchLocal(query, year, localEnd - offset, offset)
+                : List.of();
+        if (local.size() == size) {
+            return local;
+        }
 
-            String posterPath = (String) row.get("poster_path");
-            String posterUrl = posterPath == null ? null : "https://image.tmdb.org/t/p/w500" + posterPath;
+        List<MovieSearchItem> leaders = offset == 0 ? local : movieRepository.searchLocal(query, year, BLEND_LOCAL_HITS, 0);
+        Set<String> leaderIds = new HashSet<>();
+        for (MovieSearchItem item : leaders) {
+            leaderIds.add(item.getExternalId());
+        }
 
-            items.add(new MovieSearchItem(externalId, title, parsedYear, posterUrl, overview));
+        List<MovieSearchItem> result = new ArrayList<>(local);
+        int skip = Math.max(0, offset - leaders.size());
+        // Our hits only ever push TMDB's hits back, so none of this page lies beyond raw index offset + size.
+        int lastTmdbPage = (offset + size + TMDB_PAGE_SIZE - 1) / TMDB_PAGE_SIZE;
+        try {
+            for (int tmdbPage = 1; tmdbPage <= lastTmdbPage && result.size() < size; tmdbPage++) {
+                List<MovieSearchItem> hits = toSearchItems(externalMovieApiClient.searchMovies(query, year, tmdbPage));
+                for (MovieSearchItem item : hits) {
+                    if (leaderIds.contains(item.getExternalId())) {
+                        continue;
+                    }
+                    if (skip > 0) {
+                        skip--;
+                    } else if (result.size() < size) {
+                        result.add(item);
+                    }
+                }
+                if (hits.size() < TMDB_PAGE_SIZE) {
+                    break;
+                }
+            }
+        } catch (UpstreamUnavailableException e) {
+            // What was found before TMDB failed is still the start of this page.
+            return result;
         }
+        return result;
+    }
 
-        return items;
+    private List<MovieSearchItem> searchTmdb(String query, Integer year, int page, int size) {
+        return toSearchItems(externalMovieApiClient.searchMovies(query, year, page)).stream()
+                .limit(size)
+                .toList();
+    }
+
+    private static List<MovieSearchItem> toSearchItems(TmdbSearchPage response) {
+        return response.results().stream()
+                .map(row -> new MovieSearchItem(
+                        row.id() == null ? null : String.valueOf(row.id()),
+                        row.title() == null ? "" : row.title(),
+                        parseYear(row.releaseDate()),
+                        posterUrl(row.posterPath()),
+                        row.overview() == null ? "" : row.overview()))
+                .toList();
     }
 
-    private Integer parseYear(String releaseDate) {
+    private static Integer parseYear(String releaseDate) {
         if (releaseDate == null || releaseDate.length() < 4) return null;
         try {
             return Integer.parseInt(releaseDate.substring(0, 4));
@@ -85,32 +205,7 @@ public class MovieCatalogService {
     }
 
     public MovieResponse importMovie(String externalId) {
-        Optional<Movie> existing = movieRepository.findByExternalId(externalId);
-        if (existing.isPresent()) {
-            Movie m = existing.get();
-            return toResponse(m);
-        }
-
-        Map details = externalMovieApiClient.getMovieDetails(externalId);
-
-        Movie movie = new Movie();
-        movie.setExternalId(externalId);
-        movie.setTitle((String) details.getOrDefault("title", ""));
-        movie.setOverview((String) details.getOrDefault("overview", ""));
-
-        String releaseDate = (String) details.get("release_date");
-        movie.setYear(parseYear(releaseDate));
-
-        Object runtimeObj = details.get("runtime");
-        if (runtimeObj instanceof Number n) {
-            movie.setRuntimeMinutes(n.intValue());
-        }
-
-        String posterPath = (String) details.get("poster_path");
-        movie.setPosterUrl(posterPath == null ? null : "https://image.tmdb.org/t/p/w500" + posterPath);
-
-        Movie saved = saveIfNotExists(movie);
-        return toResponse(saved);
+        return toResponse(findOrImport(externalId));
     }
 
     public MovieResponse getMovieResponse(Long id) {
@@ -119,32 +214,45 @@ public class MovieCatalogService {
         return toResponse(m);
     }
 
-    @Transactional
+    /**
+     * Call outside of any transaction: the TMDB fetch runs on the calling thread and only the
+     * insert opens one, so no connection is held across the round-trip.
+     */
     public Movie importMovieEntity(String externalId) {
-        return movieRepository.findByExternalId(externalId)
-                .orElseGet(() -> {
-                    Map details = externalMovieApiClient.getMovieDetails(externalId);
-
-                    Movie movie = new Movie();
-                    movie.setExternalId(externalId);
-                    movie.setTitle((String) details.getOrDefault("title", ""));
-                    movie.setOverview((String) details.getOrDefault("overview", ""));
-
-                    String releaseDate = (String) details.get("release_date");
-                    movie.setYear(parseYear(releaseDate));
+        return findOrImport(externalId);
+    }
 
-                    Object runtimeObj = details.get("runtime");
-                    if (runtimeObj instanceof Number n) {
-                        movie.setRuntimeMinutes(n.intValue());
-                    }
+    private Movie findOrImport(String externalId) {
+        Optional<Movie> existing = movieRepository.findByExternalId(externalId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
 
-                    String posterPath = (String) details.get("poster_path");
-                    movie.setPosterUrl(posterPath == null ? null : "https://image.tmdb.org/t/p/w500" + posterPath);
+        return importFlights.execute(externalId, () -> {
+            Movie movie = toMovie(externalId, externalMovieApiClient.getMovieDetails(externalId));
+            try {
+                return importTransaction.execute(status -> saveIfNotExists(movie));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance inserted the same external_id first.
+                return movieRepository.findByExternalId(externalId).orElseThrow(() -> e);
+            }
+        });
+    }
 
-                    return saveIfNotExists(movie);
-                });
+    static Movie toMovie(String externalId, TmdbMovie details) {
+        Movie movie = new Movie();
+        movie.setExternalId(externalId);
+        movie.setTitle(details.title() == null ? "" : details.title());
+        movie.setOverview(details.overview() == null ? "" : details.overview());
+        movie.setYear(parseYear(details.releaseDate()));
+        movie.setRuntimeMinutes(details.runtime());
+        movie.setPosterUrl(posterUrl(details.posterPath()));
+        return movie;
     }
 
+    private static String posterUrl(String posterPath) {
+        return posterPath == null ? null : "https://image.tmdb.org/t/p/w500" + posterPath;
+    }
 
     private MovieResponse toResponse(Movie m) {
         return new MovieResponse(
@@ -0,0 +1,193 @@
+package ru.mawshu.movietracker.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mawshu.movietracker.dto.UserMovieResponse;
+import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.exception.TooManyRequestsException;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserRepository;
+import ru.mawshu.movietracker.repository.WatchlistRepository;
+import ru.mawshu.movietracker.repository.WatchlistRepositoryCustom.WatchlistExportRow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes a user's library and watchlists straight from the JDBC result sets to the response,
+ * so memory use does not depend on how much the user has.
+ * <p>
+ * The price is that an export holds a pooled connection and an open read snapshot for as long
+ * as the client takes to download it. Only {@code movies.export.max-concurrent} exports run at
+ * once, and the rest get a 429, so slow downloads cannot take the whole pool. What ends a stalled
+ * download is the async request timeout ({@code spring.mvc.async.request-timeout}, set to
+ * {@code movies.export.timeout}): the container then closes the response, the next write fails
+ * and the transaction and its connection are released. An export still running at that point
+ * reaches the client truncated, so the timeout has to cover the largest export at a slow pace.
+ */
+@Service
+public class UserExportService {
+
+    public enum Format { NDJSON, JSON }
+
+    private static final Duration BUSY_RETRY_AFTER = Duration.ofSeconds(30);
+
+    private final UserRepository userRepository;
+    private final UserMovieRepository userMovieRepository;
+    private final WatchlistRepository watchlistRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readTransaction;
+    private final Semaphore exportSlots;
+
+    public UserExportService(UserRepository userRepository,
+                             UserMovieRepository userMovieRepository,
+                             WatchlistRepository watchlistRepository,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${movies.export.max-concurrent:4}") int maxConcurrent) {
+        this.userRepository = userRepository;
+        this.userMovieRepository = userMovieRepository;
+        this.watchlistRepository = watchlistRepository;
+        this.objectMapper = objectMapper;
+        // PostgreSQL only honours the fetch size inside a transaction; without one it reads the whole result.
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.exportSlots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Checks the user and takes an export slot up front, so both failures are still normal
+     * error responses, and returns a body that does the actual work once the response is
+     * committed. The slot is released when the body finishes.
+     */
+    public StreamingResponseBody export(Long userId, Format format) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
+        }
+        if (!exportSlots.tryAcquire()) {
+            throw new TooManyRequestsException("Too many exports in progress", BUSY_RETRY_AFTER);
+        }
+        return out -> {
+            try {
+                writeExport(userId, format, out);
+            } finally {
+                exportSlots.release();
+            }
+        };
+    }
+
+    void writeExport(Long userId, Format format, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                readTransaction.executeWithoutResult(status -> {
+                    if (format == Format.NDJSON) {
+                        json.setRootValueSeparator(new SerializedString("\n"));
+                        writeNdjson(userId, json);
+                    } else {
+                        writeDocument(userId, json);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (format == Format.NDJSON) {
+                json.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeNdjson(Long userId, JsonGenerator json) {
+        userMovieRepository.streamLibrary(userId, entry -> write(() -> {
+            json.writeStartObject();
+            json.writeStringField("type", "library");
+            json.writeObjectField("entry", entry);
+            json.writeEndObject();
+        }));
+
+        Long[] current = {null};
+        watchlistRepository.streamUserWatchlists(userId, row -> write(() -> {
+            if (!Objects.equals(current[0], row.watchlistId())) {
+                current[0] = row.watchlistId();
+                json.writeStartObject();
+                json.writeStringField("type", "watchlist");
+                writeWatchlistFields(json, row);
+                json.writeEndObject();
+            }
+            if (row.item() != null) {
+                json.writeStartObject();
+                json.writeStringField("type", "watchlistItem");
+                json.writeNumberField("watchlistId", row.watchlistId());
+                json.writeObjectField("item", row.item());
+                json.writeEndObject();
+            }
+        }));
+    }
+
+    private void writeDocument(Long userId, JsonGenerator json) {
+        write(() -> {
+            json.writeStartObject();
+            json.writeNumberField("userId", userId);
+            json.writeArrayFieldStart("library");
+        });
+        userMovieRepository.streamLibrary(userId, entry -> write(() -> json.writeObject(entry)));
+        write(() -> {
+            json.writeEndArray();
+            json.writeArrayFieldStart("watchlists");
+        });
+
+        Long[] current = {null};
+        watchlistRepository.streamUserWatchlists(userId, row -> write(() -> {
+            if (!Objects.equals(current[0], row.watchlistId())) {
+                if (current[0] != null) {
+                    json.writeEndArray();
+                    json.writeEndObject();
+                }
+                current[0] = row.watchlistId();
+                json.writeStartObject();
+                writeWatchlistFields(json, row);
+                json.writeArrayFieldStart("items");
+            }
+            if (row.item() != null) {
+                json.writeObject(row.item());
+            }
+        }));
+        write(() -> {
+            if (current[0] != null) {
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        });
+    }
+
+    private static void writeWatchlistFields(JsonGenerator json, WatchlistExportRow row) throws IOException {
+        json.writeNumberField("id", row.watchlistId());
+        json.writeStringField("title", row.title());
+        json.writeStringField("description", row.description());
+        json.writeObjectField("createdAt", row.createdAt());
+    }
+
+    private interface JsonWrite {
+        void run() throws IOException;
+    }
+
+    private static void write(JsonWrite action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
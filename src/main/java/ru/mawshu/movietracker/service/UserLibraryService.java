@@ -1,33 +1,52 @@
 package ru.mawshu.movietracker.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mawshu.movietracker.domain.*;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.LibraryChangesResponse;
+import ru.mawshu.movietracker.dto.LibraryQuery;
+import ru.mawshu.movietracker.dto.MovieMembershipResponse;
 import ru.mawshu.movietracker.dto.MovieResponse;
 import ru.mawshu.movietracker.dto.UserMovieResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
 import ru.mawshu.movietracker.exception.NotFoundException;
 import ru.mawshu.movietracker.repository.MovieRepository;
 import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom;
 import ru.mawshu.movietracker.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class UserLibraryService {
 
+    static final int MAX_MEMBERSHIP_IDS = 500;
+
     private final UserRepository userRepository;
     private final MovieRepository movieRepository;
     private final UserMovieRepository userMovieRepository;
     private final MovieCatalogService movieCatalogService;
+    private final LibraryMembershipIndex membershipIndex;
+    private final TransactionTemplate writeTransaction;
 
     public UserLibraryService(UserRepository userRepository,
                               MovieRepository movieRepository,
                               UserMovieRepository userMovieRepository,
-                              MovieCatalogService movieCatalogService) {
+                              MovieCatalogService movieCatalogService,
+                              LibraryMembershipIndex membershipIndex,
+                              PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.movieRepository = movieRepository;
         this.userMovieRepository = userMovieRepository;
         this.movieCatalogService = movieCatalogService;
+        this.membershipIndex = membershipIndex;
+        // Only the library write and its version bump share a transaction; the TMDB import before them does not.
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
 
     public UserMovieResponse addOrUpdateUserMovie(Long userId, String externalId, WatchStatus status) {
@@ -38,12 +57,18 @@ public class UserLibraryService {
         Movie movie = movieRepository.findByExternalId(externalId)
                 .orElseThrow(() -> new NotFoundException("Movie not found after import"));
 
+        return writeTransaction.execute(tx -> saveUserMovie(userId, user, movie, status));
+    }
+
+    private UserMovieResponse saveUserMovie(Long userId, User user, Movie movie, WatchStatus status) {
+        long version = userMovieRepository.nextLibraryVersion(userId);
         UserMovie userMovie = userMovieRepository.findByUserIdAndMovieId(userId, movie.getId())
                 .orElseGet(UserMovie::new);
 
         userMovie.setUser(user);
         userMovie.setMovie(movie);
         userMovie.setStatus(status);
+        userMovie.setChangeVersion(version);
 
         if (status == WatchStatus.WATCHED && userMovie.getWatchedAt() == null) {
             userMovie.setWatchedAt(LocalDateTime.now());
@@ -53,14 +78,27 @@ public class UserLibraryService {
         }
 
         UserMovie saved = userMovieRepository.save(userMovie);
+        membershipIndex.invalidate(userId);
         return toResponse(saved);
     }
 
-    public List<UserMovieResponse> getUserMovies(Long userId) {
-        userRepository.findById(userId).orElseThrow(() -> new NotFoundException("User not found"));
-        return userMovieRepository.findByUserId(userId).stream().map(this::toResponse).toList();
+    /**
+     * Changes with every write to the user's library. Read it before the library itself, so a
+     * concurrent write can only make the tag older than the body, never newer.
+     */
+    public long getLibraryVersion(Long userId) {
+        return userRepository.findLibraryVersion(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    public CursorPage<UserMovieResponse> getUserMovies(Long userId, LibraryQuery query) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
+        }
+        return userMovieRepository.findLibraryPage(userId, query);
     }
 
+    @Transactional
     public UserMovieResponse updateStatus(Long userId, Long userMovieId, WatchStatus status) {
         UserMovie um = userMovieRepository.findByIdAndUserId(userMovieId, userId)
                 .orElseThrow(() -> new NotFoundException("UserMovie not found"));
@@ -68,28 +106,81 @@ public class UserLibraryService {
         um.setStatus(status);
         if (status == WatchStatus.WATCHED) um.setWatchedAt(LocalDateTime.now());
         if (status == WatchStatus.PLANNED) um.setWatchedAt(null);
+        um.setChangeVersion(userMovieRepository.nextLibraryVersion(userId));
 
-        return toResponse(userMovieRepository.save(um));
+        UserMovie saved = userMovieRepository.save(um);
+        membershipIndex.invalidate(userId);
+        return toResponse(saved);
     }
 
+    @Transactional
     public UserMovieResponse updateRating(Long userId, Long userMovieId, Integer rating) {
         UserMovie um = userMovieRepository.findByIdAndUserId(userMovieId, userId)
                 .orElseThrow(() -> new NotFoundException("UserMovie not found"));
         um.setRating(rating);
-        return toResponse(userMovieRepository.save(um));
+        um.setChangeVersion(userMovieRepository.nextLibraryVersion(userId));
+        UserMovie saved = userMovieRepository.save(um);
+        return toResponse(saved);
     }
 
+    @Transactional
     public UserMovieResponse updateLiked(Long userId, Long userMovieId, boolean liked) {
         UserMovie um = userMovieRepository.findByIdAndUserId(userMovieId, userId)
                 .orElseThrow(() -> new NotFoundException("UserMovie not found"));
         um.setLiked(liked);
-        return toResponse(userMovieRepository.save(um));
+        um.setChangeVersion(userMovieRepository.nextLibraryVersion(userId));
+        UserMovie saved = userMovieRepository.save(um);
+        return toResponse(saved);
     }
 
+    @Transactional
     public void deleteUserMovie(Long userId, Long userMovieId) {
         UserMovie um = userMovieRepository.findByIdAndUserId(userMovieId, userId)
                 .orElseThrow(() -> new NotFoundException("UserMovie not found"));
+        long version = userMovieRepository.nextLibraryVersion(userId);
         userMovieRepository.delete(um);
+        userMovieRepository.insertTombstone(userId, um.getId(), um.getMovie().getId(), version, LocalDateTime.now());
+        membershipIndex.invalidate(userId);
+    }
+
+    /**
+     * What changed in the user's library after library version {@code since}: entries written since
+     * then and tombstones of entries deleted since then. Clients start from 0 and pass {@code nextSince}
+     * back on their next call. A cursor older than the pruned tombstones, or newer than the library
+     * itself, gets a resync answer instead.
+     */
+    @Transactional(readOnly = true)
+    public LibraryChangesResponse getChanges(Long userId, long since) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative");
+        }
+        // Read before the rows: a write committing in between is sent again next time, never skipped.
+        UserMovieRepositoryCustom.ChangeCursor cursor = userMovieRepository.findChangeCursor(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+        if ((since != 0 && since < cursor.floor()) || since > cursor.version()) {
+            return LibraryChangesResponse.resync();
+        }
+        return new LibraryChangesResponse(
+                userMovieRepository.findChangedSince(userId, since),
+                userMovieRepository.findTombstonesSince(userId, since),
+                cursor.version(),
+                false);
+    }
+
+    /**
+     * Library status and watchlists of each requested movie, answered from the in-memory index.
+     */
+    public List<MovieMembershipResponse> getMembership(Long userId, List<Long> movieIds) {
+        if (movieIds.size() > MAX_MEMBERSHIP_IDS) {
+            throw new BadRequestException("At most " + MAX_MEMBERSHIP_IDS + " movieIds can be checked at once");
+        }
+        LibraryMembershipIndex.Membership membership = membershipIndex.get(userId);
+        List<MovieMembershipResponse> result = new ArrayList<>(movieIds.size());
+        for (Long movieId : movieIds) {
+            result.add(new MovieMembershipResponse(movieId, membership.status(movieId),
+                    membership.watchlistsContaining(movieId)));
+        }
+        return result;
     }
 
     private UserMovieResponse toResponse(UserMovie um) {
@@ -0,0 +1,91 @@
+package ru.mawshu.movietracker.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mawshu.movietracker.repository.WatchlistItemRepository;
+import ru.mawshu.movietracker.repository.WatchlistRepository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Spreads a watchlist's item positions back out to multiples of {@link WatchlistService#POSITION_GAP}
+ * once moves have used up the space between neighbours. Requests are queued per watchlist and run
+ * one at a time on a background thread after the requesting transaction commits.
+ */
+@Component
+public class WatchlistRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(WatchlistRebalancer.class);
+
+    private final WatchlistRepository watchlistRepository;
+    private final WatchlistItemRepository watchlistItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "watchlist-rebalancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WatchlistRebalancer(WatchlistRepository watchlistRepository,
+                               WatchlistItemRepository watchlistItemRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.watchlistRepository = watchlistRepository;
+        this.watchlistItemRepository = watchlistItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void schedule(Long watchlistId) {
+        if (!pending.add(watchlistId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    submit(watchlistId);
+                }
+            });
+        } else {
+            submit(watchlistId);
+        }
+    }
+
+    /**
+     * Respaces the watchlist in the caller's transaction, keeping the current order.
+     */
+    public void rebalance(Long watchlistId) {
+        if (watchlistRepository.findByIdForUpdate(watchlistId).isEmpty()) {
+            return;
+        }
+        watchlistRepository.reorderItems(watchlistId, watchlistItemRepository.findIdsByWatchlistId(watchlistId),
+                WatchlistService.POSITION_GAP);
+        // Positions are part of the watchlist's representation.
+        watchlistRepository.bumpVersion(watchlistId);
+    }
+
+    private void submit(Long watchlistId) {
+        executor.execute(() -> {
+            pending.remove(watchlistId);
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebalance(watchlistId));
+            } catch (RuntimeException e) {
+                log.warn("Rebalancing watchlist {} failed", watchlistId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,14 +1,23 @@
 package ru.mawshu.movietracker.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mawshu.movietracker.domain.Movie;
 import ru.mawshu.movietracker.domain.User;
 import ru.mawshu.movietracker.domain.Watchlist;
 import ru.mawshu.movietracker.domain.WatchlistItem;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
+import ru.mawshu.movietracker.dto.CursorPage;
 import ru.mawshu.movietracker.dto.MovieResponse;
+import ru.mawshu.movietracker.dto.WatchlistBatchAddResponse;
 import ru.mawshu.movietracker.dto.WatchlistItemResponse;
+import ru.mawshu.movietracker.dto.WatchlistItemsQuery;
 import ru.mawshu.movietracker.dto.WatchlistResponse;
+import ru.mawshu.movietracker.dto.WatchlistSummaryResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
 import ru.mawshu.movietracker.exception.ConflictException;
 import ru.mawshu.movietracker.exception.NotFoundException;
 import ru.mawshu.movietracker.repository.UserRepository;
@@ -16,28 +25,56 @@ import ru.mawshu.movietracker.repository.WatchlistItemRepository;
 import ru.mawshu.movietracker.repository.WatchlistRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class WatchlistService {
 
+    /**
+     * Distance between neighbouring positions after an append, reorder or rebalance, so that a
+     * move can take the midpoint between two neighbours without touching any other row.
+     */
+    static final int POSITION_GAP = 1024;
+    private static final int MIN_GAP = 8;
+    private static final int SUMMARY_POSTER_COUNT = 4;
+    static final int FIRST_PAGE_SIZE = 50;
+
     private final WatchlistRepository watchlistRepository;
     private final WatchlistItemRepository watchlistItemRepository;
     private final UserRepository userRepository;
     private final MovieCatalogService movieCatalogService;
+    private final MovieBatchImportService movieBatchImportService;
+    private final WatchlistRebalancer watchlistRebalancer;
+    private final LibraryMembershipIndex membershipIndex;
+    private final TransactionTemplate writeTransaction;
 
     public WatchlistService(
             WatchlistRepository watchlistRepository,
             WatchlistItemRepository watchlistItemRepository,
             UserRepository userRepository,
-            MovieCatalogService movieCatalogService
+            MovieCatalogService movieCatalogService,
+            MovieBatchImportService movieBatchImportService,
+            WatchlistRebalancer watchlistRebalancer,
+            LibraryMembershipIndex membershipIndex,
+            PlatformTransactionManager transactionManager
     ) {
         this.watchlistRepository = watchlistRepository;
         this.watchlistItemRepository = watchlistItemRepository;
         this.userRepository = userRepository;
         this.movieCatalogService = movieCatalogService;
+        this.movieBatchImportService = movieBatchImportService;
+        this.watchlistRebalancer = watchlistRebalancer;
+        this.membershipIndex = membershipIndex;
+        // Adds fetch from TMDB before opening this, so no connection is held while waiting on it.
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
@@ -52,6 +89,7 @@ public class WatchlistService {
         watchlist.setCreatedAt(LocalDateTime.now());
 
         Watchlist saved = watchlistRepository.save(watchlist);
+        userRepository.bumpWatchlistsVersion(userId);
         return toResponse(saved);
     }
 
@@ -66,20 +104,35 @@ public class WatchlistService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    public List<WatchlistSummaryResponse> getUserWatchlistSummaries(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
+        }
+
+        return watchlistRepository.findSummariesByUserId(userId, SUMMARY_POSTER_COUNT);
+    }
+
     public WatchlistItemResponse addMovieToWatchlist(Long watchlistId, String externalId) {
+        if (!watchlistRepository.existsById(watchlistId)) {
+            throw new NotFoundException("Watchlist not found");
+        }
+
+        Movie movie = movieCatalogService.importMovieEntity(externalId);
+        return writeTransaction.execute(tx -> saveItem(watchlistId, movie));
+    }
+
+    private WatchlistItemResponse saveItem(Long watchlistId, Movie movie) {
         Watchlist watchlist = watchlistRepository.findById(watchlistId)
                 .orElseThrow(() -> new NotFoundException("Watchlist not found"));
 
-        Movie movie = movieCatalogService.importMovieEntity(externalId);
+        // Taking the counter first also serializes the duplicate check against other appends.
+        int nextPos = watchlistRepository.nextPosition(watchlistId, POSITION_GAP);
 
         if (watchlistItemRepository.existsByWatchlistIdAndMovieId(watchlistId, movie.getId())) {
             throw new ConflictException("Movie already exists in this watchlist");
         }
 
-        Integer maxPos = watchlistItemRepository.findMaxPosition(watchlistId);
-        int nextPos = (maxPos == null) ? 1 : (maxPos + 1);
-
         WatchlistItem item = new WatchlistItem();
         item.setWatchlist(watchlist);
         item.setMovie(movie);
@@ -87,14 +140,71 @@ public class WatchlistService {
         item.setAddedAt(LocalDateTime.now());
 
         WatchlistItem saved = watchlistItemRepository.save(item);
+        watchlistRepository.bumpVersion(watchlistId);
+        membershipIndex.invalidate(watchlist.getUser().getId());
         return toItemResponse(saved);
     }
 
+    public WatchlistBatchAddResponse addMoviesToWatchlist(Long watchlistId, List<String> externalIds) {
+        if (!watchlistRepository.existsById(watchlistId)) {
+            throw new NotFoundException("Watchlist not found");
+        }
+
+        BatchImportResponse imported = movieBatchImportService.importMovies(externalIds);
+        return writeTransaction.execute(tx -> saveItems(watchlistId, imported));
+    }
+
+    private WatchlistBatchAddResponse saveItems(Long watchlistId, BatchImportResponse imported) {
+        List<BatchImportResult> failed = new ArrayList<>();
+        Map<Long, String> requested = new LinkedHashMap<>();
+        for (BatchImportResult result : imported.getResults()) {
+            if (result.getStatus() == BatchImportResult.Status.FAILED) {
+                failed.add(result);
+            } else {
+                requested.putIfAbsent(result.getMovieId(), result.getExternalId());
+            }
+        }
+        if (requested.isEmpty()) {
+            return new WatchlistBatchAddResponse(List.of(), List.of(), failed);
+        }
+
+        // Locked after the TMDB fetches so other writers to this watchlist do not wait on them.
+        Watchlist watchlist = watchlistRepository.findByIdForUpdate(watchlistId)
+                .orElseThrow(() -> new NotFoundException("Watchlist not found"));
+
+        Set<Long> present = watchlistItemRepository.findMovieIdsInWatchlist(watchlistId, requested.keySet());
+        List<String> skipped = new ArrayList<>();
+        List<Long> toAdd = new ArrayList<>();
+        requested.forEach((movieId, externalId) -> {
+            if (present.contains(movieId)) {
+                skipped.add(externalId);
+            } else {
+                toAdd.add(movieId);
+            }
+        });
+        if (toAdd.isEmpty()) {
+            return new WatchlistBatchAddResponse(List.of(), skipped, failed);
+        }
+
+        int lastPosition = watchlistRepository.nextPosition(watchlistId, toAdd.size() * POSITION_GAP);
+        watchlistRepository.batchInsertItems(watchlistId, toAdd, lastPosition - (toAdd.size() - 1) * POSITION_GAP, POSITION_GAP);
+        watchlistRepository.bumpVersion(watchlistId);
+        membershipIndex.invalidate(watchlist.getUser().getId());
+
+        List<WatchlistItemResponse> added = watchlistItemRepository.findWithMovieByWatchlistIdAndMovieIdIn(watchlistId, toAdd)
+                .stream()
+                .map(this::toItemResponse)
+                .collect(Collectors.toList());
+        return new WatchlistBatchAddResponse(added, skipped, failed);
+    }
+
     @Transactional
     public void removeWatchlistItem(Long watchlistId, Long itemId) {
         WatchlistItem item = watchlistItemRepository.findByIdAndWatchlistId(itemId, watchlistId)
                 .orElseThrow(() -> new NotFoundException("Watchlist item not found"));
         watchlistItemRepository.delete(item);
+        watchlistRepository.bumpVersion(watchlistId);
+        membershipIndex.invalidate(item.getWatchlist().getUser().getId());
     }
 
     @Transactional
@@ -102,29 +212,124 @@ public class WatchlistService {
         Watchlist watchlist = watchlistRepository.findById(watchlistId)
                 .orElseThrow(() -> new NotFoundException("Watchlist not found"));
         watchlistRepository.delete(watchlist);
+        userRepository.bumpWatchlistsVersion(watchlist.getUser().getId());
+        membershipIndex.invalidate(watchlist.getUser().getId());
     }
 
     @Transactional
     public void reorderItems(Long watchlistId, List<Long> orderedItemIds) {
-        Watchlist watchlist = watchlistRepository.findById(watchlistId)
+        // The row lock serializes concurrent reorders of the same watchlist.
+        watchlistRepository.findByIdForUpdate(watchlistId)
                 .orElseThrow(() -> new NotFoundException("Watchlist not found"));
 
-        int pos = 1;
-        for (Long itemId : orderedItemIds) {
-            WatchlistItem item = watchlistItemRepository.findByIdAndWatchlistId(itemId, watchlist.getId())
-                    .orElseThrow(() -> new NotFoundException("Watchlist item not found: " + itemId));
-            item.setPosition(pos++);
+        Set<Long> submitted = new HashSet<>(orderedItemIds);
+        if (submitted.size() != orderedItemIds.size()) {
+            throw new BadRequestException("orderedItemIds must not contain duplicates");
         }
+        if (!submitted.equals(new HashSet<>(watchlistItemRepository.findIdsByWatchlistId(watchlistId)))) {
+            throw new ConflictException("orderedItemIds must list exactly the watchlist's items");
+        }
+
+        watchlistRepository.reorderItems(watchlistId, orderedItemIds, POSITION_GAP);
+        watchlistRepository.bumpVersion(watchlistId);
+    }
+
+    @Transactional
+    public WatchlistItemResponse moveItem(Long watchlistId, Long itemId, Long afterItemId, Long beforeItemId) {
+        if (afterItemId == null && beforeItemId == null) {
+            throw new BadRequestException("afterItemId or beforeItemId is required");
+        }
+        if (itemId.equals(afterItemId) || itemId.equals(beforeItemId)) {
+            throw new BadRequestException("An item cannot be moved next to itself");
+        }
+
+        watchlistRepository.findByIdForUpdate(watchlistId)
+                .orElseThrow(() -> new NotFoundException("Watchlist not found"));
+        positionOf(watchlistId, itemId);
+
+        watchlistItemRepository.updatePosition(itemId, positionBetween(watchlistId, itemId, afterItemId, beforeItemId));
+        watchlistRepository.bumpVersion(watchlistId);
+        return toItemResponse(watchlistItemRepository.findByIdAndWatchlistId(itemId, watchlistId)
+                .orElseThrow(() -> new NotFoundException("Watchlist item not found: " + itemId)));
+    }
+
+    /**
+     * Changes whenever any of the user's watchlists or their items change. Read it before the data
+     * it describes, so a concurrent write can only make the tag older than the body, never newer.
+     */
+    public long getWatchlistsVersion(Long userId) {
+        return userRepository.findWatchlistsVersion(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    public long getWatchlistVersion(Long watchlistId) {
+        return watchlistRepository.findVersion(watchlistId)
+                .orElseThrow(() -> new NotFoundException("Watchlist not found"));
     }
 
     @Transactional(readOnly = true)
     public WatchlistResponse getWatchlist(Long watchlistId) {
-        Watchlist w = watchlistRepository.findByIdWithItems(watchlistId)
+        Watchlist w = watchlistRepository.findById(watchlistId)
                 .orElseThrow(() -> new NotFoundException("Watchlist not found"));
 
-        return toResponse(w);
+        CursorPage<WatchlistItemResponse> firstPage = watchlistRepository.findItemsPage(watchlistId, null, FIRST_PAGE_SIZE);
+        return new WatchlistResponse(
+                w.getId(),
+                w.getUser().getId(),
+                w.getTitle(),
+                w.getDescription(),
+                w.getCreatedAt(),
+                firstPage.getItems(),
+                firstPage.getNextCursor()
+        );
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<WatchlistItemResponse> getWatchlistItems(Long watchlistId, WatchlistItemsQuery query) {
+        if (!watchlistRepository.existsById(watchlistId)) {
+            throw new NotFoundException("Watchlist not found");
+        }
+
+        return watchlistRepository.findItemsPage(watchlistId, query.getCursor(), query.getLimit());
+    }
+
+
+    private int positionBetween(Long watchlistId, Long itemId, Long afterItemId, Long beforeItemId) {
+        Integer lower;
+        Integer upper;
+        if (afterItemId != null) {
+            lower = positionOf(watchlistId, afterItemId);
+            upper = watchlistItemRepository.findNextPosition(watchlistId, lower, itemId);
+            if (beforeItemId != null && !Objects.equals(upper, positionOf(watchlistId, beforeItemId))) {
+                throw new ConflictException("afterItemId and beforeItemId are not adjacent");
+            }
+        } else {
+            upper = positionOf(watchlistId, beforeItemId);
+            lower = watchlistItemRepository.findPreviousPosition(watchlistId, upper, itemId);
+        }
+
+        if (lower == null) {
+            return upper - POSITION_GAP;
+        }
+        if (upper == null) {
+            return watchlistRepository.nextPosition(watchlistId, POSITION_GAP);
+        }
+        if (upper - lower < 2) {
+            // No free slot left between the neighbours: respace now and look again.
+            watchlistRebalancer.rebalance(watchlistId);
+            return positionBetween(watchlistId, itemId, afterItemId, beforeItemId);
+        }
+        if (upper - lower < 2 * MIN_GAP) {
+            watchlistRebalancer.schedule(watchlistId);
+        }
+        return lower + (upper - lower) / 2;
     }
 
+    // Read as a scalar so the value reflects a rebalance done earlier in this transaction.
+    private int positionOf(Long watchlistId, Long itemId) {
+        return watchlistItemRepository.findPosition(itemId, watchlistId)
+                .orElseThrow(() -> new NotFoundException("Watchlist item not found: " + itemId));
+    }
 
     private WatchlistResponse toResponse(Watchlist watchlist) {
         List<WatchlistItemResponse> items = watchlist.getItems() == null ? List.of()
@@ -0,0 +1,8 @@
+-- Planned/Watched pages: one status of one user, keyset-ordered by the chosen column.
+-- The watched_at key is the same coalesce expression the library query sorts on.
+create index idx_user_movies_user_status_created on user_movies(user_id, status, created_at, id);
+create index idx_user_movies_user_status_watched
+    on user_movies(user_id, status, coalesce(watched_at, timestamp '1970-01-01 00:00:00'), id);
+
+-- Two distinct values; every status lookup now starts from user_id anyway.
+drop index if exists idx_user_movies_status;
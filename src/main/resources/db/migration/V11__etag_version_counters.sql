@@ -0,0 +1,5 @@
+-- Version counters behind the ETags of library and watchlist reads.
+-- Bumped in the same transaction as every write to what they cover.
+alter table users add column library_version bigint not null default 0;
+alter table users add column watchlists_version bigint not null default 0;
+alter table watchlists add column version bigint not null default 0;
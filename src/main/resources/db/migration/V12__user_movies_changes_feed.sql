@@ -0,0 +1,11 @@
+-- Library delta sync: entries changed since a point in time, plus what was deleted since then.
+create index idx_user_movies_user_updated on user_movies(user_id, updated_at);
+
+create table user_movie_tombstones (
+    user_movie_id bigint primary key,
+    user_id bigint not null references users(id) on delete cascade,
+    movie_id bigint not null references movies(id),
+    deleted_at timestamp not null
+);
+
+create index idx_user_movie_tombstones_user_deleted on user_movie_tombstones(user_id, deleted_at);
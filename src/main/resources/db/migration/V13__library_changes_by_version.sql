@@ -0,0 +1,22 @@
+-- Library delta sync keyed on users.library_version instead of wall time. The version is bumped
+-- under the users row lock, so per user it becomes visible in the order it was handed out.
+alter table user_movies add column change_version bigint not null default 0;
+alter table user_movie_tombstones add column change_version bigint not null default 0;
+-- Newest tombstone version dropped by pruning; cursors below it have to resync.
+alter table users add column changes_floor bigint not null default 0;
+
+-- Tombstones must outlive the movies they point at.
+alter table user_movie_tombstones drop constraint user_movie_tombstones_movie_id_fkey;
+
+update users set library_version = library_version + 1
+where exists (select 1 from user_movies um where um.user_id = users.id)
+   or exists (select 1 from user_movie_tombstones t where t.user_id = users.id);
+update user_movies set change_version = (select u.library_version from users u where u.id = user_movies.user_id);
+update user_movie_tombstones set change_version = (select u.library_version from users u where u.id = user_movie_tombstones.user_id);
+
+drop index idx_user_movies_user_updated;
+create index idx_user_movies_user_change on user_movies(user_id, change_version);
+
+drop index idx_user_movie_tombstones_user_deleted;
+create index idx_user_movie_tombstones_user_change on user_movie_tombstones(user_id, change_version);
+create index idx_user_movie_tombstones_deleted on user_movie_tombstones(deleted_at);
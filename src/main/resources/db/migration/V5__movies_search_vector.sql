@@ -0,0 +1,9 @@
+-- Full-text search over the local catalog. Title hits weigh more than overview hits.
+alter table movies
+    add column search_vector tsvector
+        generated always as (
+            setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+            setweight(to_tsvector('english', coalesce(overview, '')), 'B')
+        ) stored;
+
+create index idx_movies_search_vector on movies using gin (search_vector);
@@ -0,0 +1,2 @@
+-- Default library listing: newest first within a user, keyset on (created_at, id).
+create index idx_user_movies_user_created on user_movies(user_id, created_at, id);
@@ -0,0 +1,21 @@
+-- Hibernate hands out ids in blocks of 50 from the bigserial sequences (pooled-lo: the value
+-- returned by nextval is the first id of the block), so inserts can be JDBC-batched.
+-- Each sequence restarts right after the current max id; column defaults keep using the
+-- same sequences, so plain SQL inserts never collide with Hibernate's blocks.
+alter sequence users_id_seq increment by 50;
+select setval('users_id_seq', coalesce((select max(id) from users), 0) + 1, false);
+
+alter sequence movies_id_seq increment by 50;
+select setval('movies_id_seq', coalesce((select max(id) from movies), 0) + 1, false);
+
+alter sequence genres_id_seq increment by 50;
+select setval('genres_id_seq', coalesce((select max(id) from genres), 0) + 1, false);
+
+alter sequence watchlists_id_seq increment by 50;
+select setval('watchlists_id_seq', coalesce((select max(id) from watchlists), 0) + 1, false);
+
+alter sequence watchlist_items_id_seq increment by 50;
+select setval('watchlist_items_id_seq', coalesce((select max(id) from watchlist_items), 0) + 1, false);
+
+alter sequence user_movies_id_seq increment by 50;
+select setval('user_movies_id_seq', coalesce((select max(id) from user_movies), 0) + 1, false);
@@ -0,0 +1,9 @@
+-- Positions become sparse (multiples of 1024) so an item can be moved between two neighbours
+-- by updating only its own row. Existing lists keep their order.
+update watchlist_items i
+set position = r.rn * 1024
+from (
+    select id, row_number() over (partition by watchlist_id order by position, id) as rn
+    from watchlist_items
+) r
+where i.id = r.id;
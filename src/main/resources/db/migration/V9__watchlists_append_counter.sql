@@ -0,0 +1,10 @@
+-- Appends take their position from a per-watchlist counter instead of max(position), so two
+-- concurrent appends can no longer pick the same slot. The constraint is the backstop; it is
+-- deferrable so the single-statement reorder can permute positions.
+alter table watchlists add column last_position integer not null default 0;
+
+update watchlists w
+set last_position = coalesce((select max(i.position) from watchlist_items i where i.watchlist_id = w.id), 0);
+
+alter table watchlist_items
+    add constraint uq_watchlist_position unique (watchlist_id, position) deferrable initially immediate;
@@ -12,8 +12,10 @@ const API = {
     userMovieDelete: (userId, userMovieId) => `/api/users/${userId}/library/${userMovieId}`,
 
     userWatchlists: (userId) => `/api/users/${userId}/watchlists`,
+    userWatchlistSummaries: (userId) => `/api/users/${userId}/watchlists?view=summary`,
     watchlistById: (watchlistId) => `/api/watchlists/${watchlistId}`,
     watchlistDelete: (watchlistId) => `/api/watchlists/${watchlistId}`,
+    watchlistItems: (watchlistId) => `/api/watchlists/${watchlistId}/items`,
     watchlistAddItem: (watchlistId) => `/api/watchlists/${watchlistId}/items`,
     watchlistDeleteItem: (watchlistId, itemId) => `/api/watchlists/${watchlistId}/items/${itemId}`,
     watchlistReorder: (watchlistId) => `/api/watchlists/${watchlistId}/items/reorder`,
@@ -55,6 +57,38 @@ async function apiFetch(url, options = {}) {
     return data;
 }
 
+// Follows X-Next-Cursor until the last page; params.cursor resumes a listing already started.
+async function fetchAllPages(url, params = {}) {
+    const items = [];
+    let cursor = params.cursor || null;
+    do {
+        const page = await fetchPage(url, { limit: "500", ...params, cursor });
+        items.push(...page.items);
+        cursor = page.nextCursor;
+    } while (cursor);
+    return items;
+}
+
+// One keyset page: { items, nextCursor } (nextCursor = null on the last page).
+async function fetchPage(url, params = {}) {
+    const qs = new URLSearchParams();
+    for (const [k, v] of Object.entries(params)) {
+        if (v !== null && v !== undefined && v !== "") qs.set(k, v);
+    }
+
+    const res = await fetch(`${url}?${qs.toString()}`);
+    const text = await res.text();
+    let data = null;
+    try { data = text ? JSON.parse(text) : null; } catch (_) { data = text; }
+    if (!res.ok) {
+        const err = new Error((data && data.message) ? data.message : "Request failed");
+        err.status = res.status;
+        err.data = data;
+        throw err;
+    }
+    return { items: data || [], nextCursor: res.headers.get("X-Next-Cursor") };
+}
+
 function requireUserOrRedirect() {
     const userId = getUserId();
     if (!userId) {
@@ -145,7 +179,7 @@ function hideModal() {
 }
 
 async function openWatchlistsPicker({ userId, externalId, movieTitle }) {
-    const lists = await apiFetch(API.userWatchlists(userId));
+    const lists = await apiFetch(API.userWatchlistSummaries(userId));
 
     if (!lists || lists.length === 0) {
         toast("У пользователя нет списков — сначала создай список", "warn");
@@ -264,16 +298,6 @@ function injectHeader() {
 }
 
 // ============ Helpers for library/search ============
-function buildLibIndexByExternalId(libraryItems) {
-    // externalId -> { userMovieId, status }
-    const map = new Map();
-    for (const um of (libraryItems || [])) {
-        const ext = um.movie?.externalId;
-        if (ext) map.set(String(ext), { userMovieId: um.id, status: um.status });
-    }
-    return map;
-}
-
 function applyLibraryButtonStyles({ btnPlanned, btnWatched, status }) {
     // обе кнопки "нейтральные" по умолчанию, выбранная подсвечивается
     btnPlanned.classList.remove("primary");
@@ -403,21 +427,17 @@ async function initMovies() {
 async function runMovieSearch({ userId, query, year, page, size, append }) {
     clearError("err");
 
-    const [library, watchlists] = await Promise.all([
-        apiFetch(API.userLibrary(userId)),
-        apiFetch(API.userWatchlists(userId)),
-    ]);
-    const libIndex = buildLibIndexByExternalId(library);
-
     const params = new URLSearchParams();
     params.set("query", query);
     if (year) params.set("year", year);
     params.set("page", String(page));
     params.set("size", String(size));
+    // сервер сам проставит status/liked из библиотеки пользователя
+    params.set("userId", String(userId));
 
     const results = await apiFetch(`${API.moviesSearch}?${params.toString()}`);
 
-    renderMoviesSearchResults({ results, userId, watchlists, libIndex, append });
+    renderMoviesSearchResults({ results, userId, append });
 
     const btnMore = $("btnMore");
     if (btnMore) {
@@ -431,7 +451,7 @@ async function runMovieSearch({ userId, query, year, page, size, append }) {
     }
 }
 
-function renderMoviesSearchResults({ results, userId, watchlists, libIndex, append }) {
+function renderMoviesSearchResults({ results, userId, append }) {
     const box = $("searchResults");
     if (!box) return;
     if (!append) box.innerHTML = "";
@@ -442,8 +462,7 @@ function renderMoviesSearchResults({ results, userId, watchlists, libIndex, appe
     }
 
     for (const m of results) {
-        const lib = libIndex.get(String(m.externalId));
-        const statusInLib = lib?.status || null;
+        const statusInLib = m.status || null;
 
         const div = document.createElement("div");
         div.className = "card";
@@ -477,8 +496,7 @@ function renderMoviesSearchResults({ results, userId, watchlists, libIndex, appe
                     body: JSON.stringify({ externalId: m.externalId, status: "PLANNED" })
                 });
                 toast("Добавлено: Смотреть позже", "ok");
-                // обновим карточки (MVP)
-                await runMovieSearch({ userId, query: $("q").value.trim(), year: $("year")?.value.trim() || null, page: 1, size: 6, append: false });
+                applyLibraryButtonStyles({ btnPlanned, btnWatched, status: "PLANNED" });
             } catch (err) { showError("err", err); }
         });
 
@@ -490,7 +508,7 @@ function renderMoviesSearchResults({ results, userId, watchlists, libIndex, appe
                     body: JSON.stringify({ externalId: m.externalId, status: "WATCHED" })
                 });
                 toast("Добавлено: Просмотрено", "ok");
-                await runMovieSearch({ userId, query: $("q").value.trim(), year: $("year")?.value.trim() || null, page: 1, size: 6, append: false });
+                applyLibraryButtonStyles({ btnPlanned, btnWatched, status: "WATCHED" });
             } catch (err) { showError("err", err); }
         });
 
@@ -517,23 +535,7 @@ async function initPlanned() {
 }
 
 async function refreshPlanned(userId) {
-    clearError("err");
-    try {
-        const [items, watchlists] = await Promise.all([
-            apiFetch(API.userLibrary(userId)),
-            apiFetch(API.userWatchlists(userId)),
-        ]);
-        const planned = items.filter(x => x.status === "PLANNED");
-        renderLibrarySection({
-            targetId: "itemsList",
-            items: planned,
-            userId,
-            watchlists,
-            allowRatingLike: false
-        });
-    } catch (err) {
-        showError("err", err);
-    }
+    await refreshLibraryView(userId, "PLANNED", false);
 }
 
 // ============ WATCHED ============
@@ -550,42 +552,53 @@ async function initWatched() {
 }
 
 async function refreshWatched(userId) {
+    await refreshLibraryView(userId, "WATCHED", true);
+}
+
+// Фильтр по статусу и сортировка — на сервере, грузим по одной странице
+const LIBRARY_PAGE_SIZE = 48;
+
+async function refreshLibraryView(userId, status, allowRatingLike) {
     clearError("err");
-    try {
-        const [items, watchlists] = await Promise.all([
-            apiFetch(API.userLibrary(userId)),
-            apiFetch(API.userWatchlists(userId)),
-        ]);
-        const watched = items.filter(x => x.status === "WATCHED");
-        renderLibrarySection({
-            targetId: "itemsList",
-            items: watched,
-            userId,
-            watchlists,
-            allowRatingLike: true
-        });
-    } catch (err) {
-        showError("err", err);
-    }
+    const params = {
+        status,
+        sort: $("libSortBy") ? $("libSortBy").value : "addedAt",
+        dir: $("libSortDir") ? $("libSortDir").value : "desc",
+        limit: String(LIBRARY_PAGE_SIZE),
+    };
+
+    const loadPage = async (cursor, append) => {
+        try {
+            const page = await fetchPage(API.userLibrary(userId), { ...params, cursor });
+            renderLibrarySection({
+                targetId: "itemsList",
+                items: page.items,
+                userId,
+                allowRatingLike,
+                append,
+                onMore: page.nextCursor ? () => loadPage(page.nextCursor, true) : null
+            });
+        } catch (err) {
+            showError("err", err);
+        }
+    };
+    await loadPage(null, false);
 }
 
 // ============ Library renderer (used by Planned/Watched) ============
-function renderLibrarySection({ targetId, items, userId, watchlists, allowRatingLike }) {
+function renderLibrarySection({ targetId, items, userId, allowRatingLike, append, onMore }) {
     const box = $(targetId);
     if (!box) return;
 
-    const sortBy = $("libSortBy") ? $("libSortBy").value : "addedAt";
-    const sortDir = $("libSortDir") ? $("libSortDir").value : "desc";
-
-    const sorted = sortUserMovies(items || [], sortBy, sortDir);
-    box.innerHTML = "";
+    if (append) box.querySelector('[data-act="more"]')?.remove();
+    else box.innerHTML = "";
 
-    if (!sorted || sorted.length === 0) {
+    if (!append && (!items || items.length === 0)) {
         box.innerHTML = `<div class="small">Пусто</div>`;
         return;
     }
 
-    for (const um of sorted) {
+    for (const um of items) {
         const movie = um.movie || {};
         const div = document.createElement("div");
         div.className = "card";
@@ -697,6 +710,18 @@ function renderLibrarySection({ targetId, items, userId, watchlists, allowRating
             } catch (err) { showError("err", err); }
         });
     }
+
+    if (onMore) {
+        const more = document.createElement("button");
+        more.className = "btn";
+        more.setAttribute("data-act", "more");
+        more.innerText = "Показать ещё";
+        more.addEventListener("click", () => {
+            more.disabled = true;
+            onMore();
+        });
+        box.appendChild(more);
+    }
 }
 
 // ============ WATCHLISTS ============
@@ -732,7 +757,7 @@ async function initWatchlists() {
 async function refreshWatchlists(userId) {
     clearError("err");
     try {
-        const list = await apiFetch(API.userWatchlists(userId));
+        const list = await apiFetch(API.userWatchlistSummaries(userId));
         renderWatchlists(list);
     } catch (err) {
         showError("err", err);
@@ -756,7 +781,7 @@ function renderWatchlists(list) {
         div.innerHTML = `
       <h3>${escapeHtml(wl.title)}</h3>
       <div class="small">${escapeHtml(wl.description || "")}</div>
-      <div class="small">id: ${wl.id} | createdAt: ${escapeHtml(wl.createdAt)}</div>
+      <div class="small">id: ${wl.id} | фильмов: ${wl.itemCount} | createdAt: ${escapeHtml(wl.createdAt)}</div>
       <div class="row" style="margin-top:10px; gap:8px;">
         <button class="btn primary" data-act="open">Открыть</button>
         <button class="btn danger" data-act="delete">Удалить</button>
@@ -825,6 +850,11 @@ async function initWatchlist() {
         try {
             const ids = Array.from(document.querySelectorAll("[data-itemid]"))
                 .map(el => Number(el.getAttribute("data-itemid")));
+            // The server wants every item id; pages not shown yet keep their order after the rest.
+            if (watchlistNextCursor) {
+                const rest = await fetchAllPages(API.watchlistItems(watchlistId), { cursor: watchlistNextCursor });
+                ids.push(...rest.map(it => it.id));
+            }
             await apiFetch(API.watchlistReorder(watchlistId), {
                 method: "PATCH",
                 body: JSON.stringify({ orderedItemIds: ids })
@@ -835,6 +865,9 @@ async function initWatchlist() {
     });
 }
 
+// Cursor of the first item page not loaded yet; null once the whole watchlist is on screen.
+let watchlistNextCursor = null;
+
 async function refreshWatchlist(watchlistId) {
     clearError("err");
     const wl = await apiFetch(API.watchlistById(watchlistId));
@@ -843,21 +876,37 @@ async function refreshWatchlist(watchlistId) {
     $("watchlistDesc") && ($("watchlistDesc").innerText = wl.description || "");
 
     let items = wl.items || [];
+    watchlistNextCursor = wl.nextItemsCursor || null;
+
+    const loadMore = async () => {
+        try {
+            const page = await fetchPage(API.watchlistItems(watchlistId), { cursor: watchlistNextCursor });
+            items = items.concat(page.items);
+            watchlistNextCursor = page.nextCursor;
+            render();
+        } catch (err) {
+            showError("err", err);
+        }
+    };
+    const render = () => renderWatchlistItems(sortWatchlistItems(items), watchlistId,
+        watchlistNextCursor ? loadMore : null);
 
+    render();
+}
+
+// сортировка ТОЛЬКО отображения
+function sortWatchlistItems(items) {
     const sortBy = $("sortSelect") ? $("sortSelect").value : "position";
     const dir = $("sortDir") ? $("sortDir").value : "asc";
     const mul = dir === "desc" ? -1 : 1;
 
-    // сортировка ТОЛЬКО отображения
-    items = [...items].sort((a, b) => {
+    return [...items].sort((a, b) => {
         if (sortBy === "position") return mul * ((a.position ?? 0) - (b.position ?? 0));
         if (sortBy === "title") return mul * String(a.movie?.title ?? "").localeCompare(String(b.movie?.title ?? ""));
         if (sortBy === "year") return mul * ((a.movie?.year ?? 0) - (b.movie?.year ?? 0));
         if (sortBy === "addedAt") return mul * (String(a.addedAt ?? "").localeCompare(String(b.addedAt ?? "")));
         return 0;
     });
-
-    renderWatchlistItems(items, watchlistId);
 }
 
 function renderWatchlistSearchResults(results, watchlistId) {
@@ -1024,7 +1073,7 @@ function renderStatusList(items, userId, watchlists, status) {
 }
 
 
-function renderWatchlistItems(items, watchlistId) {
+function renderWatchlistItems(items, watchlistId, onMore) {
     const box = $("items");
     if (!box) return;
 
@@ -1074,7 +1123,19 @@ function renderWatchlistItems(items, watchlistId) {
         });
         div.querySelector('[data-act="down"]').addEventListener("click", () => {
             const next = div.nextElementSibling;
-            if (next) box.insertBefore(next, div);
+            if (next && next.hasAttribute("data-itemid")) box.insertBefore(next, div);
+        });
+    }
+
+    if (onMore) {
+        const more = document.createElement("button");
+        more.className = "btn";
+        more.setAttribute("data-act", "more");
+        more.innerText = "Показать ещё";
+        more.addEventListener("click", () => {
+            more.disabled = true;
+            onMore();
         });
+        box.appendChild(more);
     }
 }
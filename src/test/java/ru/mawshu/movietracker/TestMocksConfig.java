@@ -5,6 +5,9 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import ru.mawshu.movietracker.repository.UserRepository;
+import ru.mawshu.movietracker.service.LibraryImportService;
+import ru.mawshu.movietracker.service.MovieBatchImportService;
+import ru.mawshu.movietracker.service.UserExportService;
 import ru.mawshu.movietracker.service.UserLibraryService;
 import ru.mawshu.movietracker.service.WatchlistService;
 import ru.mawshu.movietracker.service.MovieCatalogService;
@@ -24,12 +27,30 @@ public class TestMocksConfig {
         return Mockito.mock(MovieCatalogService.class);
     }
 
+    @Bean
+    @Primary
+    public MovieBatchImportService movieBatchImportService() {
+        return Mockito.mock(MovieBatchImportService.class);
+    }
+
     @Bean
     @Primary
     public UserLibraryService userLibraryService() {
         return Mockito.mock(UserLibraryService.class);
     }
 
+    @Bean
+    @Primary
+    public LibraryImportService libraryImportService() {
+        return Mockito.mock(LibraryImportService.class);
+    }
+
+    @Bean
+    @Primary
+    public UserExportService userExportService() {
+        return Mockito.mock(UserExportService.class);
+    }
+
     @Bean
     @Primary
     public WatchlistService watchlistService() {
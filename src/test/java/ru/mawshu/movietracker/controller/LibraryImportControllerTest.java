@@ -0,0 +1,56 @@
+package ru.mawshu.movietracker.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mawshu.movietracker.TestMocksConfig;
+import ru.mawshu.movietracker.dto.LibraryImportError;
+import ru.mawshu.movietracker.dto.LibraryImportResponse;
+import ru.mawshu.movietracker.service.LibraryImportService;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(LibraryImportController.class)
+@Import(TestMocksConfig.class)
+class LibraryImportControllerTest {
+
+    @Autowired MockMvc mockMvc;
+
+    @Autowired LibraryImportService libraryImportService;
+
+    @Test
+    void importJson_returnsSummary() throws Exception {
+        when(libraryImportService.importEntries(eq(31L), anyList()))
+                .thenReturn(new LibraryImportResponse(2, 1, 1, List.of(new LibraryImportError(2, "30", "404 Not Found"))));
+
+        mockMvc.perform(post("/api/users/31/library:import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"entries\":[{\"externalId\":\"10\",\"status\":\"PLANNED\"},{\"externalId\":\"30\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.saved").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2));
+    }
+
+    @Test
+    void importCsv_passesBodyThrough() throws Exception {
+        String csv = "externalId,status\n10,planned\n";
+        when(libraryImportService.importCsv(32L, csv)).thenReturn(new LibraryImportResponse(1, 1, 0, List.of()));
+
+        mockMvc.perform(post("/api/users/32/library:import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saved").value(1));
+    }
+}
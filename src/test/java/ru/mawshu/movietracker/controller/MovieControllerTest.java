@@ -6,10 +6,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.mawshu.movietracker.TestMocksConfig;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
 import ru.mawshu.movietracker.dto.MovieResponse;
 import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.exception.UpstreamUnavailableException;
+import ru.mawshu.movietracker.service.MovieBatchImportService;
 import ru.mawshu.movietracker.service.MovieCatalogService;
 
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -21,6 +29,7 @@ class MovieControllerTest {
     @Autowired MockMvc mockMvc;
 
     @Autowired MovieCatalogService movieCatalogService; // mock из TestMocksConfig
+    @Autowired MovieBatchImportService movieBatchImportService;
 
     @Test
     void importMovie_returns201() throws Exception {
@@ -32,6 +41,18 @@ class MovieControllerTest {
                 .andExpect(jsonPath("$.externalId").value("10"));
     }
 
+    @Test
+    void importMovie_whenUpstreamUnavailable_returns503WithRetryAfter() throws Exception {
+        when(movieCatalogService.importMovie("404404"))
+                .thenThrow(new UpstreamUnavailableException("TMDB is temporarily unavailable", Duration.ofSeconds(30), null));
+
+        mockMvc.perform(post("/api/movies/import/404404"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.status").value(503))
+                .andExpect(jsonPath("$.message").value("TMDB is temporarily unavailable"));
+    }
+
     @Test
     void getMovie_notFound_returns404() throws Exception {
         when(movieCatalogService.getMovieResponse(99L))
@@ -41,6 +62,16 @@ class MovieControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getMovie_isPubliclyCacheable() throws Exception {
+        when(movieCatalogService.getMovieResponse(98L))
+                .thenReturn(new MovieResponse(98L, "603", "The Matrix", 1999, 136, null, ""));
+
+        mockMvc.perform(get("/api/movies/98"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=3600, public"));
+    }
+
     @Test
     void searchMovies_ok() throws Exception {
         mockMvc.perform(get("/api/movies/search")
@@ -49,4 +80,20 @@ class MovieControllerTest {
                         .param("size", "5"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void importBatch_returnsPerIdResults() throws Exception {
+        when(movieBatchImportService.importMovies(anyList())).thenReturn(new BatchImportResponse(List.of(
+                BatchImportResult.imported("10", 1L),
+                BatchImportResult.failed("11", "404 Not Found")
+        )));
+
+        mockMvc.perform(post("/api/movies/import:batch")
+                        .contentType("application/json")
+                        .content("{\"externalIds\":[\"10\",\"11\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+    }
 }
@@ -0,0 +1,74 @@
+package ru.mawshu.movietracker.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.mawshu.movietracker.TestMocksConfig;
+import ru.mawshu.movietracker.service.UserExportService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserExportController.class)
+@Import(TestMocksConfig.class)
+class UserExportControllerTest {
+
+    @Autowired MockMvc mockMvc;
+
+    @Autowired UserExportService userExportService;
+
+    @Test
+    void export_ndjson_streamsBodyAsAttachment() throws Exception {
+        when(userExportService.export(1L, UserExportService.Format.NDJSON))
+                .thenReturn(out -> out.write("{\"type\":\"library\"}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/api/users/1/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"movie-tracker-user-1.ndjson\""))
+                .andExpect(content().string("{\"type\":\"library\"}\n"));
+    }
+
+    @Test
+    void export_json_usesJsonContentType() throws Exception {
+        when(userExportService.export(2L, UserExportService.Format.JSON))
+                .thenReturn(out -> out.write("{}".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/api/users/2/export").param("format", "json"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"));
+    }
+
+    @Test
+    void export_runsUnderExportTimeout_soItOutlivesTheContainerDefault() throws Exception {
+        when(userExportService.export(3L, UserExportService.Format.NDJSON))
+                .thenReturn(out -> out.write("{\"type\":\"library\"}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/api/users/3/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Tomcat would otherwise end the response after about 30 s, MockMvc after 10 s.
+        assertEquals(Duration.ofMinutes(10).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"type\":\"library\"}\n"));
+    }
+}
@@ -10,14 +10,26 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.mawshu.movietracker.TestMocksConfig;
 import ru.mawshu.movietracker.domain.WatchStatus;
 import ru.mawshu.movietracker.dto.AddUserMovieRequest;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.LibraryChangesResponse;
+import ru.mawshu.movietracker.dto.LibraryQuery;
+import ru.mawshu.movietracker.dto.LibraryTombstone;
+import ru.mawshu.movietracker.dto.MovieMembershipResponse;
 import ru.mawshu.movietracker.dto.UpdateLikedRequest;
 import ru.mawshu.movietracker.dto.UpdateRatingRequest;
 import ru.mawshu.movietracker.dto.UserMovieResponse;
 import ru.mawshu.movietracker.service.UserLibraryService;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserMovieController.class)
@@ -85,4 +97,106 @@ class UserMovieControllerTest {
                         .content(objectMapper.writeValueAsString(req)))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void getLibrary_passesFilters_andReturnsNextCursorHeader() throws Exception {
+        when(userLibraryService.getUserMovies(eq(7L), argThat(q ->
+                q.getStatus() == WatchStatus.WATCHED && Boolean.TRUE.equals(q.getLiked())
+                        && "rating".equals(q.getSort()) && "abc".equals(q.getCursor()) && q.getLimit() == 2)))
+                .thenReturn(new CursorPage<>(List.of(
+                        new UserMovieResponse(1L, null, WatchStatus.WATCHED, 9, true, null, null, null),
+                        new UserMovieResponse(2L, null, WatchStatus.WATCHED, 8, true, null, null, null)),
+                        "next-token"));
+
+        mockMvc.perform(get("/api/users/7/library")
+                        .param("status", "WATCHED")
+                        .param("liked", "true")
+                        .param("sort", "rating")
+                        .param("cursor", "abc")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next-token"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void getLibrary_lastPage_hasNoCursorHeader() throws Exception {
+        when(userLibraryService.getUserMovies(eq(8L), any(LibraryQuery.class)))
+                .thenReturn(new CursorPage<>(List.of(), null));
+
+        mockMvc.perform(get("/api/users/8/library"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void membership_returnsPerMovieStatusAndWatchlists() throws Exception {
+        when(userLibraryService.getMembership(eq(41L), eq(List.of(100L, 200L))))
+                .thenReturn(List.of(
+                        new MovieMembershipResponse(100L, WatchStatus.WATCHED, List.of(7L)),
+                        new MovieMembershipResponse(200L, null, List.of())));
+
+        mockMvc.perform(get("/api/users/41/library/membership").param("movieIds", "100,200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("WATCHED"))
+                .andExpect(jsonPath("$[0].watchlistIds[0]").value(7))
+                .andExpect(jsonPath("$[1].status").doesNotExist());
+    }
+
+    @Test
+    void getAll_withEmptyLimit_returns400() throws Exception {
+        mockMvc.perform(get("/api/users/72/library").param("limit", ""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("limit: must not be null"));
+
+        verify(userLibraryService, never()).getUserMovies(eq(72L), any());
+    }
+
+    @Test
+    void changes_parsesSince_andReturnsUpsertsAndTombstones() throws Exception {
+        when(userLibraryService.getChanges(70L, 41L)).thenReturn(new LibraryChangesResponse(
+                List.of(),
+                List.of(new LibraryTombstone(5L, 100L, LocalDateTime.of(2024, 1, 1, 13, 0))),
+                42L,
+                false));
+
+        mockMvc.perform(get("/api/users/70/library/changes").param("since", "41"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserted").isEmpty())
+                .andExpect(jsonPath("$.deleted[0].userMovieId").value(5))
+                .andExpect(jsonPath("$.deleted[0].movieId").value(100))
+                .andExpect(jsonPath("$.nextSince").value(42))
+                .andExpect(jsonPath("$.resyncRequired").value(false));
+    }
+
+    @Test
+    void changes_withoutSince_startsFromZero() throws Exception {
+        when(userLibraryService.getChanges(73L, 0L)).thenReturn(new LibraryChangesResponse(List.of(), List.of(), 3L, false));
+
+        mockMvc.perform(get("/api/users/73/library/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextSince").value(3));
+    }
+
+    @Test
+    void getAll_withCurrentETag_returns304_withoutReadingLibrary() throws Exception {
+        when(userLibraryService.getLibraryVersion(60L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/users/60/library").header("If-None-Match", "\"library-60-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(userLibraryService, never()).getUserMovies(eq(60L), any());
+    }
+
+    @Test
+    void getAll_withStaleETag_returnsBodyAndNewETag() throws Exception {
+        when(userLibraryService.getLibraryVersion(61L)).thenReturn(4L);
+        when(userLibraryService.getUserMovies(eq(61L), any())).thenReturn(new CursorPage<>(List.of(), null));
+
+        mockMvc.perform(get("/api/users/61/library").header("If-None-Match", "\"library-61-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"library-61-4\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+    }
 }
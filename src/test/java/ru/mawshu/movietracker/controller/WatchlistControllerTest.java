@@ -9,8 +9,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.mawshu.movietracker.TestMocksConfig;
 import ru.mawshu.movietracker.dto.CreateWatchlistRequest;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.MoveWatchlistItemRequest;
 import ru.mawshu.movietracker.dto.ReorderWatchlistRequest;
+import ru.mawshu.movietracker.dto.WatchlistBatchAddResponse;
+import ru.mawshu.movietracker.dto.WatchlistItemResponse;
 import ru.mawshu.movietracker.dto.WatchlistResponse;
+import ru.mawshu.movietracker.dto.WatchlistSummaryResponse;
 import ru.mawshu.movietracker.service.WatchlistService;
 
 import java.time.LocalDateTime;
@@ -18,8 +23,12 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(WatchlistController.class)
@@ -66,4 +75,76 @@ class WatchlistControllerTest {
         mockMvc.perform(delete("/api/watchlists/1"))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    void moveItem_returnsItemWithNewPosition() throws Exception {
+        MoveWatchlistItemRequest req = new MoveWatchlistItemRequest();
+        req.setAfterItemId(21L);
+
+        when(watchlistService.moveItem(20L, 23L, 21L, null))
+                .thenReturn(new WatchlistItemResponse(23L, 1536, LocalDateTime.now(), null));
+
+        mockMvc.perform(patch("/api/watchlists/20/items/23/move")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position").value(1536));
+    }
+
+    @Test
+    void addItemsBatch_returnsSummary() throws Exception {
+        when(watchlistService.addMoviesToWatchlist(30L, List.of("603", "550")))
+                .thenReturn(new WatchlistBatchAddResponse(
+                        List.of(new WatchlistItemResponse(31L, 1024, LocalDateTime.now(), null)), List.of("550"), List.of()));
+
+        mockMvc.perform(post("/api/watchlists/30/items:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"externalIds\":[\"603\",\"550\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.added[0].id").value(31))
+                .andExpect(jsonPath("$.skipped[0]").value("550"));
+    }
+
+    @Test
+    void getUserWatchlists_summaryView_returnsSummaries() throws Exception {
+        when(watchlistService.getUserWatchlistSummaries(40L))
+                .thenReturn(List.of(new WatchlistSummaryResponse(41L, "Top", null, LocalDateTime.now(), 7, List.of("p.jpg"))));
+
+        mockMvc.perform(get("/api/users/40/watchlists").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].itemCount").value(7))
+                .andExpect(jsonPath("$[0].posterUrls[0]").value("p.jpg"))
+                .andExpect(jsonPath("$[0].items").doesNotExist());
+    }
+
+    @Test
+    void getItems_setsNextCursorHeader() throws Exception {
+        when(watchlistService.getWatchlistItems(eq(50L), any()))
+                .thenReturn(new CursorPage<>(List.of(new WatchlistItemResponse(51L, 1024, LocalDateTime.now(), null)), "c2"));
+
+        mockMvc.perform(get("/api/watchlists/50/items").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "c2"))
+                .andExpect(jsonPath("$[0].id").value(51));
+    }
+
+    @Test
+    void getWatchlist_withCurrentETag_returns304_withoutReadingWatchlist() throws Exception {
+        when(watchlistService.getWatchlistVersion(60L)).thenReturn(7L);
+
+        mockMvc.perform(get("/api/watchlists/60").header("If-None-Match", "\"watchlist-60-7\""))
+                .andExpect(status().isNotModified());
+
+        verify(watchlistService, never()).getWatchlist(60L);
+    }
+
+    @Test
+    void getUserWatchlistSummaries_carriesETag() throws Exception {
+        when(watchlistService.getWatchlistsVersion(61L)).thenReturn(2L);
+        when(watchlistService.getUserWatchlistSummaries(61L)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/users/61/watchlists").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"watchlists-61-2\""));
+    }
 }
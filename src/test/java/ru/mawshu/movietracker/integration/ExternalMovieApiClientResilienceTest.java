@@ -0,0 +1,177 @@
+package ru.mawshu.movietracker.integration;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestClient;
+import ru.mawshu.movietracker.exception.UpstreamUnavailableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the client against a local stub server that can be made slow or failing.
+ */
+class ExternalMovieApiClientResilienceTest {
+
+    HttpServer server;
+    ExecutorService serverThreads;
+    AtomicInteger hits;
+    TmdbProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        hits = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+
+        properties = new TmdbProperties();
+        properties.setApiKey("key");
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/3");
+        properties.getCache().getDetails().setEnabled(false);
+        properties.getCache().getSearch().setEnabled(false);
+
+        TmdbProperties.Resilience resilience = properties.getResilience();
+        resilience.setSlidingWindowSize(4);
+        resilience.setMinimumNumberOfCalls(4);
+        resilience.setFailureRateThreshold(50);
+        resilience.setWaitInOpenState(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void failingUpstream_opensCircuit_andLaterCallsFailFastWithoutHittingServer() {
+        stub(0, 500, "{}");
+        ExternalMovieApiClient client = client();
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(UpstreamUnavailableException.class, () -> client.getMovieDetails("1"));
+        }
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> client.getMovieDetails("1"));
+
+        assertInstanceOf(CallNotPermittedException.class, ex.getCause());
+        assertEquals(Duration.ofMinutes(1), ex.getRetryAfter());
+        assertEquals(4, hits.get());
+    }
+
+    @Test
+    void clientErrors_doNotOpenCircuit() {
+        stub(0, 404, "{\"status_message\":\"not found\"}");
+        ExternalMovieApiClient client = client();
+
+        for (int i = 0; i < 6; i++) {
+            assertThrows(RuntimeException.class, () -> client.getMovieDetails("1"));
+        }
+
+        assertEquals(6, hits.get());
+    }
+
+    @Test
+    void slowUpstream_opensCircuitOnSlowCallRate() {
+        properties.getResilience().setSlowCallThreshold(Duration.ofMillis(50));
+        properties.getResilience().setSlowCallRateThreshold(50);
+        stub(100, 200, "{\"id\":1}");
+        ExternalMovieApiClient client = client();
+
+        for (int i = 0; i < 4; i++) {
+            client.getMovieDetails("1");
+        }
+
+        assertThrows(UpstreamUnavailableException.class, () -> client.getMovieDetails("1"));
+        assertEquals(4, hits.get());
+    }
+
+    @Test
+    void bulkhead_rejectsCallsBeyondConcurrencyLimit() throws Exception {
+        properties.getResilience().setMaxConcurrentCalls(1);
+        properties.getResilience().setMaxWait(Duration.ZERO);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/3/movie", exchange -> {
+            hits.incrementAndGet();
+            entered.countDown();
+            await(release);
+            respond(exchange, 200, "{\"id\":1}");
+        });
+        ExternalMovieApiClient client = client();
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = caller.submit(() -> client.getMovieDetails("1"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                    () -> client.getMovieDetails("2"));
+            assertInstanceOf(BulkheadFullException.class, ex.getCause());
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+        assertEquals(1, hits.get());
+    }
+
+    private ExternalMovieApiClient client() {
+        return new ExternalMovieApiClient(RestClient.builder(), properties, new SimpleMeterRegistry(), new MockEnvironment());
+    }
+
+    private void stub(long delayMillis, int status, String body) {
+        server.createContext("/3/movie", exchange -> {
+            hits.incrementAndGet();
+            sleep(delayMillis);
+            respond(exchange, status, body);
+        });
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package ru.mawshu.movietracker.integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import ru.mawshu.movietracker.exception.UpstreamUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.twice;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
+
+class ExternalMovieApiClientTest {
+
+    private static final String BASE_URL = "http://tmdb.test/3";
+
+    RestClient.Builder builder;
+    MockRestServiceServer server;
+    TmdbProperties properties;
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        builder = RestClient.builder();
+        server = MockRestServiceServer.bindTo(builder).build();
+        properties = new TmdbProperties();
+        properties.setApiKey("key");
+        properties.setBaseUrl(BASE_URL);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void getMovieDetails_whenCacheEnabled_callsUpstreamOnce_andCountsHits() {
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/movie/550")))
+                .andRespond(withSuccess("{\"id\":550,\"title\":\"Fight Club\"}", MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        TmdbMovie first = client.getMovieDetails("550");
+        TmdbMovie second = client.getMovieDetails("550");
+
+        assertEquals("Fight Club", first.title());
+        assertSame(first, second);
+        server.verify();
+
+        assertEquals(1.0, cacheGets("hit"));
+        assertEquals(1.0, cacheGets("miss"));
+    }
+
+    @Test
+    void getMovieDetails_decodesOnlyMappedFields() {
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/movie/603")))
+                .andRespond(withSuccess("""
+                        {"id":603,"title":"The Matrix","release_date":"1999-03-30","runtime":136,
+                         "overview":"Neo","poster_path":"/m.jpg","adult":false,
+                         "genres":[{"id":28,"name":"Action"}],
+                         "production_companies":[{"id":79,"name":"Village Roadshow","origin_country":"US"}],
+                         "credits":{"cast":[{"id":6384,"name":"Keanu Reeves","character":"Neo"}]}}
+                        """, MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        assertEquals(new TmdbMovie(603L, "The Matrix", "1999-03-30", "Neo", "/m.jpg", 136),
+                client.getMovieDetails("603"));
+    }
+
+    @Test
+    void getMovieDetails_whenCacheDisabled_callsUpstreamEveryTime() {
+        properties.getCache().getDetails().setEnabled(false);
+        server.expect(twice(), requestTo(startsWith(BASE_URL + "/movie/550")))
+                .andRespond(withSuccess("{\"id\":550,\"title\":\"Fight Club\"}", MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        client.getMovieDetails("550");
+        client.getMovieDetails("550");
+
+        server.verify();
+        assertNull(meterRegistry.find("cache.gets").tag("cache", ExternalMovieApiClient.DETAILS_CACHE_NAME).meter());
+    }
+
+    @Test
+    void searchMovies_normalizesQuery_soEquivalentQueriesShareOneEntry() {
+        server.expect(once(), requestTo(BASE_URL + "/search/movie?api_key=key&query=the%20matrix&page=1"))
+                .andRespond(withSuccess("{\"page\":1,\"results\":[{\"id\":603,\"title\":\"The Matrix\"}]}",
+                        MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        TmdbSearchPage first = client.searchMovies("the matrix", null, 1);
+        TmdbSearchPage second = client.searchMovies("  The   Matrix ", null, 1);
+
+        assertSame(first, second);
+        server.verify();
+        assertEquals(1.0, cacheGets(ExternalMovieApiClient.SEARCH_CACHE_NAME, "hit"));
+    }
+
+    @Test
+    void searchMovies_cacheMiss_loadsOnCallingThread() {
+        AtomicReference<Thread> loader = new AtomicReference<>();
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/search/movie")))
+                .andRespond(request -> {
+                    loader.set(Thread.currentThread());
+                    return withSuccess("{\"results\":[]}", MediaType.APPLICATION_JSON).createResponse(request);
+                });
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        client.searchMovies("matrix", null, 1);
+
+        assertSame(Thread.currentThread(), loader.get());
+        server.verify();
+    }
+
+    @Test
+    void searchMovies_differentYearOrPage_areSeparateEntries() {
+        server.expect(once(), requestTo(BASE_URL + "/search/movie?api_key=key&query=matrix&page=1"))
+                .andRespond(withSuccess("{\"results\":[]}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(BASE_URL + "/search/movie?api_key=key&query=matrix&page=2"))
+                .andRespond(withSuccess("{\"results\":[]}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(BASE_URL + "/search/movie?api_key=key&query=matrix&page=1&year=1999"))
+                .andRespond(withSuccess("{\"results\":[]}", MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        client.searchMovies("matrix", null, 1);
+        client.searchMovies("matrix", null, 2);
+        client.searchMovies("matrix", 1999, 1);
+        client.searchMovies("Matrix", 1999, 1);
+
+        server.verify();
+    }
+
+    @Test
+    void searchMovies_whenCacheDisabled_callsUpstreamEveryTime() {
+        properties.getCache().getSearch().setEnabled(false);
+        server.expect(twice(), requestTo(startsWith(BASE_URL + "/search/movie")))
+                .andRespond(withSuccess("{\"results\":[]}", MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        client.searchMovies("matrix", null, 1);
+        client.searchMovies("matrix", null, 1);
+
+        server.verify();
+    }
+
+    @Test
+    void getMovieDetails_whenUpstreamFails_doesNotCacheFailure() {
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/movie/7")))
+                .andRespond(withServerError());
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/movie/7")))
+                .andRespond(withSuccess("{\"id\":7}", MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        assertThrows(UpstreamUnavailableException.class, () -> client.getMovieDetails("7"));
+        assertEquals(7L, client.getMovieDetails("7").id());
+        server.verify();
+    }
+
+    @Test
+    void getMovieDetails_whenTmdbReturns429_surfacesRetryAfter() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "7");
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/movie/9")))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(headers));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> client.getMovieDetails("9"));
+        assertEquals(Duration.ofSeconds(7), ex.getRetryAfter());
+        server.verify();
+    }
+
+    @Test
+    void getMovieDetails_whenBudgetExhausted_rejectsWithoutCallingUpstream() {
+        properties.getCache().getDetails().setEnabled(false);
+        properties.getRateLimit().setRequestsPerSecond(0.01);
+        properties.getRateLimit().setBurst(1);
+        properties.getRateLimit().setMaxWait(Duration.ZERO);
+        server.expect(once(), requestTo(startsWith(BASE_URL + "/movie/1")))
+                .andRespond(withSuccess("{\"id\":1}", MediaType.APPLICATION_JSON));
+
+        ExternalMovieApiClient client = new ExternalMovieApiClient(builder, properties, meterRegistry, new MockEnvironment());
+
+        client.getMovieDetails("1");
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> client.getMovieDetails("1"));
+
+        assertTrue(ex.getRetryAfter().toSeconds() > 1);
+        server.verify();
+    }
+
+    private double cacheGets(String result) {
+        return cacheGets(ExternalMovieApiClient.DETAILS_CACHE_NAME, result);
+    }
+
+    private double cacheGets(String cacheName, String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
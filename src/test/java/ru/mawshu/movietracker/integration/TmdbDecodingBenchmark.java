@@ -0,0 +1,130 @@
+package ru.mawshu.movietracker.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding TMDB payloads into nested maps (the old path) with the typed records.
+ * Not a unit test; after {@code mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt}
+ * run {@code java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main TmdbDecodingBenchmark -prof gc}
+ * to compare both time and allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TmdbDecodingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] details;
+    private byte[] searchPage;
+
+    @Setup
+    public void setUp() {
+        details = detailsPayload().getBytes(StandardCharsets.UTF_8);
+        searchPage = searchPayload().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object details_map() throws IOException {
+        Map<String, Object> map = objectMapper.readValue(details, Map.class);
+        return new TmdbMovie(((Number) map.get("id")).longValue(), (String) map.get("title"),
+                (String) map.get("release_date"), (String) map.get("overview"),
+                (String) map.get("poster_path"), ((Number) map.get("runtime")).intValue());
+    }
+
+    @Benchmark
+    public Object details_typed() throws IOException {
+        return objectMapper.readValue(details, TmdbMovie.class);
+    }
+
+    @Benchmark
+    public Object search_map() throws IOException {
+        Map<String, Object> map = objectMapper.readValue(searchPage, Map.class);
+        int titles = 0;
+        for (Object row : (List<?>) map.get("results")) {
+            titles += ((String) ((Map<?, ?>) row).get("title")).length();
+        }
+        return titles;
+    }
+
+    @Benchmark
+    public Object search_typed() throws IOException {
+        int titles = 0;
+        for (TmdbMovie row : objectMapper.readValue(searchPage, TmdbSearchPage.class).results()) {
+            titles += row.title().length();
+        }
+        return titles;
+    }
+
+    static String detailsPayload() {
+        StringBuilder json = new StringBuilder()
+                .append("{\"id\":603,\"title\":\"The Matrix\",\"original_title\":\"The Matrix\",")
+                .append("\"release_date\":\"1999-03-30\",\"runtime\":136,\"adult\":false,\"budget\":63000000,")
+                .append("\"overview\":\"").append("Set in the 22nd century, The Matrix tells the story of a computer hacker. ".repeat(4)).append("\",")
+                .append("\"poster_path\":\"/f89U3ADr1oiB1s9GkdPOEpXUk5H.jpg\",\"popularity\":84.3,\"vote_average\":8.2,")
+                .append("\"genres\":[{\"id\":28,\"name\":\"Action\"},{\"id\":878,\"name\":\"Science Fiction\"}],")
+                .append("\"production_companies\":[");
+        for (int i = 0; i < 6; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(i).append(",\"logo_path\":\"/logo").append(i)
+                    .append(".png\",\"name\":\"Company ").append(i).append("\",\"origin_country\":\"US\"}");
+        }
+        json.append("],\"credits\":{\"cast\":[");
+        for (int i = 0; i < 60; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(1000 + i).append(",\"name\":\"Actor ").append(i)
+                    .append("\",\"character\":\"Character ").append(i)
+                    .append("\",\"order\":").append(i).append(",\"profile_path\":\"/p").append(i).append(".jpg\"}");
+        }
+        json.append("],\"crew\":[");
+        for (int i = 0; i < 120; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(5000 + i).append(",\"name\":\"Crew ").append(i)
+                    .append("\",\"department\":\"Crew\",\"job\":\"Job ").append(i).append("\"}");
+        }
+        return json.append("]}}").toString();
+    }
+
+    static String searchPayload() {
+        StringBuilder json = new StringBuilder("{\"page\":1,\"total_pages\":12,\"total_results\":231,\"results\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(i).append(",\"title\":\"Movie ").append(i)
+                    .append("\",\"original_title\":\"Movie ").append(i).append("\",\"original_language\":\"en\",")
+                    .append("\"release_date\":\"2001-01-01\",\"overview\":\"")
+                    .append("A long enough overview for a search row. ".repeat(5)).append("\",")
+                    .append("\"poster_path\":\"/poster").append(i).append(".jpg\",\"backdrop_path\":\"/b").append(i)
+                    .append(".jpg\",\"genre_ids\":[28,12,878],\"popularity\":12.5,\"vote_average\":7.1,")
+                    .append("\"vote_count\":1234,\"adult\":false,\"video\":false}");
+        }
+        return json.append("]}").toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TmdbDecodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
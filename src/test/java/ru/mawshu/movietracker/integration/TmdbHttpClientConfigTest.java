@@ -0,0 +1,114 @@
+package ru.mawshu.movietracker.integration;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmdbHttpClientConfigTest {
+
+    HttpServer server;
+    SimpleMeterRegistry meterRegistry;
+    TmdbProperties.Http http;
+    CloseableHttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        http = new TmdbProperties.Http();
+        http.setReadTimeout(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void slowResponse_failsWithReadTimeout() {
+        server.createContext("/slow", exchange -> {
+            sleep(1_000);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+
+        RestClient client = restClient();
+
+        assertThrows(ResourceAccessException.class, () -> client.get().uri("/slow").retrieve().body(Map.class));
+    }
+
+    @Test
+    void gzipResponse_isDecoded() {
+        server.createContext("/gzip", exchange -> {
+            byte[] body = gzip("{\"title\":\"Heat\"}");
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        Map body = restClient().get().uri("/gzip").retrieve().body(Map.class);
+
+        assertEquals("Heat", body.get("title"));
+    }
+
+    @Test
+    void poolMetrics_areRegistered() {
+        restClient();
+
+        assertEquals(http.getMaxConnections(), meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", TmdbHttpClientConfig.POOL_NAME)
+                .gauge().value());
+        assertNotNull(meterRegistry.find("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", TmdbHttpClientConfig.POOL_NAME)
+                .tag("state", "leased")
+                .gauge());
+    }
+
+    private RestClient restClient() {
+        httpClient = TmdbHttpClientConfig.buildHttpClient(http, meterRegistry);
+        return RestClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
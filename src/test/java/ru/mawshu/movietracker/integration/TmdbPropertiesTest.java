@@ -0,0 +1,34 @@
+package ru.mawshu.movietracker.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmdbPropertiesTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(PropertiesConfig.class);
+
+    @Test
+    void missingApiKey_failsStartup() {
+        runner.run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("tmdb.api-key= ").run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @Test
+    void apiKey_isBound() {
+        runner.withPropertyValues("tmdb.api-key=secret")
+                .run(context -> assertEquals("secret", context.getBean(TmdbProperties.class).getApiKey()));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(TmdbProperties.class)
+    static class PropertiesConfig {
+    }
+}
@@ -0,0 +1,91 @@
+package ru.mawshu.movietracker.integration;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    AtomicLong clock;
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void reserve_servesBurstImmediately_thenQueuesAtRefillRate() {
+        TokenBucketRateLimiter limiter = limiter(10, 2);
+
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        assertEquals(100 * MS, limiter.reserve(Long.MAX_VALUE));
+        assertEquals(200 * MS, limiter.reserve(Long.MAX_VALUE));
+    }
+
+    @Test
+    void reserve_beyondDeadline_isRejectedWithoutConsumingAToken() {
+        TokenBucketRateLimiter limiter = limiter(10, 1);
+        limiter.reserve(Long.MAX_VALUE);
+
+        assertEquals(-1, limiter.reserve(50 * MS));
+        assertEquals(100 * MS, limiter.reserve(100 * MS));
+    }
+
+    @Test
+    void reserve_refillsOverTime_upToBurst() {
+        TokenBucketRateLimiter limiter = limiter(10, 2);
+        limiter.reserve(Long.MAX_VALUE);
+        limiter.reserve(Long.MAX_VALUE);
+
+        clock.addAndGet(10_000 * MS);
+
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(-1, limiter.reserve(0));
+        assertEquals(Duration.ofMillis(100), limiter.nextAvailableIn());
+    }
+
+    @Test
+    void acquire_whenInterruptedWhileWaiting_returnsFalse_keepsFlag_andRefundsToken() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, "tmdb", meterRegistry);
+        assertTrue(limiter.acquire(Duration.ZERO));
+
+        Thread.currentThread().interrupt();
+        boolean acquired = limiter.acquire(Duration.ofSeconds(5));
+
+        assertFalse(acquired);
+        assertTrue(Thread.interrupted());
+        assertTrue(limiter.nextAvailableIn().compareTo(Duration.ofSeconds(1)) <= 0);
+        assertEquals(0, limiter.queueDepth());
+    }
+
+    @Test
+    void acquire_recordsWaitTimeAndRejections() {
+        TokenBucketRateLimiter limiter = limiter(100, 1);
+
+        assertTrue(limiter.acquire(Duration.ofSeconds(1)));
+        assertTrue(limiter.acquire(Duration.ofSeconds(1)));
+        assertFalse(limiter.acquire(Duration.ZERO));
+
+        Timer wait = meterRegistry.get("ratelimiter.wait").tag("name", "tmdb").timer();
+        assertEquals(2, wait.count());
+        assertEquals(1.0, meterRegistry.get("ratelimiter.rejected").tag("name", "tmdb").counter().count());
+        assertEquals(0.0, meterRegistry.get("ratelimiter.queue.depth").tag("name", "tmdb").gauge().value());
+    }
+
+    private TokenBucketRateLimiter limiter(double permitsPerSecond, int burst) {
+        return new TokenBucketRateLimiter(permitsPerSecond, burst, "tmdb", meterRegistry, clock::get);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.mawshu.movietracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import ru.mawshu.movietracker.domain.Movie;
+import ru.mawshu.movietracker.domain.User;
+import ru.mawshu.movietracker.domain.UserMovie;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.domain.Watchlist;
+import ru.mawshu.movietracker.domain.WatchlistItem;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bulk library and watchlist writes through Hibernate, one user with {@code ROWS} library rows
+ * and a watchlist of the same size per operation. {@code batchSize=1} is the old profile (one
+ * round trip per INSERT, as with IDENTITY ids); {@code batchSize=50} is the configured one.
+ * Runs against in-memory H2 by default; point it at a Flyway-migrated PostgreSQL with
+ * {@code -Dbench.url=... -Dbench.user=... -Dbench.password=...} for meaningful numbers.
+ * Not a unit test; see {@code TmdbDecodingBenchmark} for how to launch it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    static final int ROWS = 500;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory emf;
+    private List<Long> movieIds;
+    private EntityManager em;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        String url = System.getProperty("bench.url");
+        DriverManagerDataSource dataSource = url == null
+                ? new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1", "sa", "")
+                : new DriverManagerDataSource(url, System.getProperty("bench.user"), System.getProperty("bench.password"));
+
+        Map<String, Object> jpa = new HashMap<>();
+        jpa.put("hibernate.hbm2ddl.auto", url == null ? "create-drop" : "none");
+        jpa.put("hibernate.jdbc.batch_size", batchSize);
+        jpa.put("hibernate.order_inserts", true);
+        jpa.put("hibernate.order_updates", true);
+        jpa.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("ru.mawshu.movietracker.domain");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpa);
+        factoryBean.afterPropertiesSet();
+        emf = factoryBean.getObject();
+
+        movieIds = new ArrayList<>(ROWS);
+        inTransaction(em -> {
+            String prefix = UUID.randomUUID().toString();
+            for (int i = 0; i < ROWS; i++) {
+                Movie movie = new Movie();
+                movie.setExternalId(prefix + "-" + i);
+                movie.setTitle("Movie " + i);
+                movie.setCreatedAt(LocalDateTime.now());
+                em.persist(movie);
+                movieIds.add(movie.getId());
+            }
+        });
+    }
+
+    @Setup(Level.Invocation)
+    public void openEntityManager() {
+        em = emf.createEntityManager();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeEntityManager() {
+        em.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public Object libraryAndWatchlistInsert() {
+        em.getTransaction().begin();
+        String name = UUID.randomUUID().toString();
+        User user = new User();
+        user.setEmail(name + "@bench.test");
+        user.setUsername(name);
+        user.setPassword("x");
+        em.persist(user);
+
+        Watchlist watchlist = new Watchlist();
+        watchlist.setUser(user);
+        watchlist.setTitle("Bench");
+        watchlist.setCreatedAt(LocalDateTime.now());
+        em.persist(watchlist);
+
+        for (int i = 0; i < ROWS; i++) {
+            Movie movie = em.getReference(Movie.class, movieIds.get(i));
+
+            UserMovie userMovie = new UserMovie();
+            userMovie.setUser(user);
+            userMovie.setMovie(movie);
+            userMovie.setStatus(WatchStatus.PLANNED);
+            em.persist(userMovie);
+
+            WatchlistItem item = new WatchlistItem();
+            item.setWatchlist(watchlist);
+            item.setMovie(movie);
+            item.setPosition(i + 1);
+            item.setAddedAt(LocalDateTime.now());
+            em.persist(item);
+        }
+        em.getTransaction().commit();
+        return user.getId();
+    }
+
+    private void inTransaction(Consumer<EntityManager> work) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            work.accept(em);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.mawshu.movietracker.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.mawshu.movietracker.dto.MovieSearchItem;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Covers the non-PostgreSQL search path against an in-memory H2 database.
+ */
+class MovieRepositoryImplTest {
+
+    SingleConnectionDataSource db;
+    JdbcTemplate jdbcTemplate;
+    MovieRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        db = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;NON_KEYWORDS=YEAR", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("""
+                create table movies (
+                    id bigint generated by default as identity primary key,
+                    external_id varchar(64) not null unique,
+                    title varchar(255) not null,
+                    year integer,
+                    poster_url varchar(1024),
+                    overview text
+                )
+                """);
+        insert("1", "Matrix", 1999, "A hacker learns the truth");
+        insert("2", "The Matrix Reloaded", 2003, "Neo returns");
+        insert("3", "Animatrix", 2003, "Short films");
+        insert("4", "Inception", 2010, "Dreams within the matrix of the mind");
+        insert("5", "100% Wolf", 2020, "Werewolf");
+        repository = new MovieRepositoryImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.destroy();
+    }
+
+    @Test
+    void searchLocal_ranksExactThenPrefixThenTitleThenOverviewMatches() {
+        List<MovieSearchItem> res = repository.searchLocal(" Matrix ", null, 10, 0);
+
+        assertEquals(List.of("1", "3", "2", "4"), externalIds(res));
+    }
+
+    @Test
+    void searchLocal_filtersByYear_andPages() {
+        assertEquals(List.of("3", "2"), externalIds(repository.searchLocal("matrix", 2003, 10, 0)));
+        assertEquals(List.of("2"), externalIds(repository.searchLocal("matrix", 2003, 1, 1)));
+    }
+
+    @Test
+    void searchLocal_treatsLikeWildcardsLiterally() {
+        assertEquals(List.of("5"), externalIds(repository.searchLocal("100%", null, 10, 0)));
+        assertTrue(repository.searchLocal("_", null, 10, 0).isEmpty());
+    }
+
+    private void insert(String externalId, String title, int year, String overview) {
+        jdbcTemplate.update("insert into movies (external_id, title, year, overview) values (?, ?, ?, ?)",
+                externalId, title, year, overview);
+    }
+
+    private static List<String> externalIds(List<MovieSearchItem> items) {
+        return items.stream().map(MovieSearchItem::getExternalId).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package ru.mawshu.movietracker.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom.LibraryUpsert;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The import upsert relies on PostgreSQL's ON CONFLICT DO UPDATE, which H2 does not run.
+ * Set MOVIES_TEST_POSTGRES_URL (and _USER/_PASSWORD) to a scratch database to include it.
+ */
+@EnabledIfEnvironmentVariable(named = "MOVIES_TEST_POSTGRES_URL", matches = ".+")
+class UserMovieRepositoryImplPostgresTest {
+
+    private static final LocalDateTime FIRST_WATCHED = LocalDateTime.of(2024, 1, 1, 20, 0);
+
+    SingleConnectionDataSource db;
+    JdbcTemplate jdbcTemplate;
+    UserMovieRepositoryImpl repository;
+    String schema;
+
+    @BeforeEach
+    void setUp() {
+        db = new SingleConnectionDataSource(System.getenv("MOVIES_TEST_POSTGRES_URL"),
+                System.getenv().getOrDefault("MOVIES_TEST_POSTGRES_USER", "postgres"),
+                System.getenv().getOrDefault("MOVIES_TEST_POSTGRES_PASSWORD", ""), true);
+        jdbcTemplate = new JdbcTemplate(db);
+        schema = "upsert_test_" + UUID.randomUUID().toString().replace("-", "");
+        jdbcTemplate.execute("create schema " + schema);
+        jdbcTemplate.execute("set search_path to " + schema);
+        jdbcTemplate.execute("""
+                create table users (
+                    id bigint primary key,
+                    library_version bigint not null default 0,
+                    changes_floor bigint not null default 0
+                )
+                """);
+        jdbcTemplate.execute("""
+                create table user_movies (
+                    id bigserial primary key,
+                    user_id bigint not null,
+                    movie_id bigint not null,
+                    status varchar(20) not null,
+                    rating integer,
+                    liked boolean not null,
+                    watched_at timestamp,
+                    created_at timestamp not null,
+                    updated_at timestamp not null,
+                    change_version bigint not null default 0,
+                    unique (user_id, movie_id)
+                )
+                """);
+        jdbcTemplate.update("insert into users (id, library_version) values (1, 4)");
+        jdbcTemplate.update("""
+                insert into user_movies (user_id, movie_id, status, rating, liked, watched_at, created_at, updated_at, change_version)
+                values (1, 10, 'WATCHED', 7, true, ?, timestamp '2024-01-01 00:00:00', timestamp '2024-01-01 00:00:00', 4),
+                       (1, 11, 'WATCHED', 6, false, ?, timestamp '2024-01-01 00:00:00', timestamp '2024-01-01 00:00:00', 4),
+                       (1, 12, 'PLANNED', null, false, null, timestamp '2024-01-01 00:00:00', timestamp '2024-01-01 00:00:00', 4)
+                """, Timestamp.valueOf(FIRST_WATCHED), Timestamp.valueOf(FIRST_WATCHED));
+        repository = new UserMovieRepositoryImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop schema " + schema + " cascade");
+        db.destroy();
+    }
+
+    @Test
+    void batchUpsert_mergesIntoExistingRows_andStampsOneNewVersion() {
+        repository.batchUpsert(1L, List.of(
+                new LibraryUpsert(10L, WatchStatus.WATCHED, null, null, null),
+                new LibraryUpsert(11L, WatchStatus.PLANNED, 9, true, null),
+                new LibraryUpsert(12L, WatchStatus.WATCHED, null, null, null),
+                new LibraryUpsert(13L, WatchStatus.WATCHED, null, null, LocalDateTime.of(2023, 5, 1, 0, 0))));
+
+        // Omitted rating, liked and watchedAt keep what the row had.
+        Map<String, Object> kept = row(10);
+        assertEquals("WATCHED", kept.get("status"));
+        assertEquals(7, kept.get("rating"));
+        assertEquals(true, kept.get("liked"));
+        assertEquals(Timestamp.valueOf(FIRST_WATCHED), kept.get("watched_at"));
+
+        // Given values win; leaving WATCHED clears watched_at.
+        Map<String, Object> replanned = row(11);
+        assertEquals("PLANNED", replanned.get("status"));
+        assertEquals(9, replanned.get("rating"));
+        assertEquals(true, replanned.get("liked"));
+        assertNull(replanned.get("watched_at"));
+
+        // Becoming WATCHED without a date takes the import time.
+        assertNotNull(row(12).get("watched_at"));
+
+        Map<String, Object> inserted = row(13);
+        assertEquals(false, inserted.get("liked"));
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2023, 5, 1, 0, 0)), inserted.get("watched_at"));
+
+        assertEquals(5L, jdbcTemplate.queryForObject("select library_version from users where id = 1", Long.class));
+        assertEquals(List.of(5L), jdbcTemplate.queryForList(
+                "select distinct change_version from user_movies where user_id = 1", Long.class));
+    }
+
+    private Map<String, Object> row(long movieId) {
+        return jdbcTemplate.queryForMap(
+                "select status, rating, liked, watched_at from user_movies where user_id = 1 and movie_id = ?", movieId);
+    }
+}
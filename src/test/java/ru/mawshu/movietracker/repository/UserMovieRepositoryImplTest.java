@@ -0,0 +1,248 @@
+package ru.mawshu.movietracker.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.LibraryQuery;
+import ru.mawshu.movietracker.dto.LibraryTombstone;
+import ru.mawshu.movietracker.dto.UserMovieResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
+import ru.mawshu.movietracker.exception.NotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserMovieRepositoryImplTest {
+
+    SingleConnectionDataSource db;
+    JdbcTemplate jdbcTemplate;
+    UserMovieRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        db = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;NON_KEYWORDS=YEAR", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("""
+                create table movies (
+                    id bigint primary key,
+                    external_id varchar(64) not null,
+                    title varchar(255) not null,
+                    year integer,
+                    runtime_minutes integer,
+                    poster_url varchar(1024),
+                    overview text
+                )
+                """);
+        jdbcTemplate.execute("""
+                create table user_movies (
+                    id bigint primary key,
+                    user_id bigint not null,
+                    movie_id bigint not null,
+                    status varchar(20) not null,
+                    rating integer,
+                    liked boolean not null,
+                    watched_at timestamp,
+                    created_at timestamp not null,
+                    updated_at timestamp not null,
+                    change_version bigint not null default 0
+                )
+                """);
+        jdbcTemplate.execute("""
+                create table user_movie_tombstones (
+                    user_movie_id bigint primary key,
+                    user_id bigint not null,
+                    movie_id bigint not null,
+                    change_version bigint not null,
+                    deleted_at timestamp not null
+                )
+                """);
+        jdbcTemplate.execute("""
+                create table users (
+                    id bigint primary key,
+                    library_version bigint not null default 0,
+                    changes_floor bigint not null default 0
+                )
+                """);
+        jdbcTemplate.update("insert into users (id, library_version) values (1, 5), (2, 0)");
+        // Two rows share created_at so the id tie-breaker is exercised.
+        insert(1, "Alien", 1979, "WATCHED", 9, true, "2024-01-01 10:00:00");
+        insert(2, "Brazil", 1985, "PLANNED", null, false, "2024-01-02 10:00:00");
+        insert(3, "Casablanca", 1942, "WATCHED", 7, false, "2024-01-02 10:00:00");
+        insert(4, "Dune", 2021, "WATCHED", 8, true, "2024-01-03 10:00:00");
+        insert(5, "Eraserhead", 1977, "PLANNED", null, true, "2024-01-04 10:00:00");
+        jdbcTemplate.update("""
+                insert into movies (id, external_id, title) values (99, 'other', 'Other user movie')
+                """);
+        jdbcTemplate.update("""
+                insert into user_movies (id, user_id, movie_id, status, liked, created_at, updated_at)
+                values (99, 2, 99, 'PLANNED', false, timestamp '2024-01-05 00:00:00', timestamp '2024-01-05 00:00:00')
+                """);
+        repository = new UserMovieRepositoryImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.destroy();
+    }
+
+    @Test
+    void findLibraryPage_walksAllPagesByAddedAtDesc_withoutGapsOrDuplicates() {
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), walk(query("addedAt", "desc", 2)));
+    }
+
+    @Test
+    void findLibraryPage_sortsByNullableRatingAscending() {
+        assertEquals(List.of(2L, 5L, 3L, 4L, 1L), walk(query("rating", "asc", 2)));
+    }
+
+    @Test
+    void findLibraryPage_sortsByTitle_andProjectsMovie() {
+        CursorPage<UserMovieResponse> page = repository.findLibraryPage(1L, query("title", "asc", 1));
+
+        UserMovieResponse first = page.getItems().get(0);
+        assertEquals("Alien", first.getMovie().getTitle());
+        assertEquals(1979, first.getMovie().getYear());
+        assertEquals(WatchStatus.WATCHED, first.getStatus());
+        assertEquals(9, first.getRating());
+        assertNotNull(page.getNextCursor());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), walk(query("title", "asc", 1)));
+    }
+
+    @Test
+    void findLibraryPage_appliesFilters() {
+        LibraryQuery watchedAndLiked = query("addedAt", "desc", 10);
+        watchedAndLiked.setStatus(WatchStatus.WATCHED);
+        watchedAndLiked.setLiked(true);
+        assertEquals(List.of(4L, 1L), walk(watchedAndLiked));
+
+        LibraryQuery rated = query("addedAt", "desc", 10);
+        rated.setMinRating(8);
+        assertEquals(List.of(4L, 1L), walk(rated));
+    }
+
+    @Test
+    void findLibraryPage_statusSliceByWatchedAt_putsNeverWatchedLast() {
+        jdbcTemplate.update("update user_movies set watched_at = timestamp '2024-02-01 00:00:00' where id = 1");
+        jdbcTemplate.update("update user_movies set watched_at = timestamp '2024-03-01 00:00:00' where id = 4");
+
+        LibraryQuery watched = query("watchedAt", "desc", 1);
+        watched.setStatus(WatchStatus.WATCHED);
+
+        assertEquals(List.of(4L, 1L, 3L), walk(watched));
+    }
+
+    @Test
+    void findLibraryPage_lastPage_hasNoCursor() {
+        assertNull(repository.findLibraryPage(1L, query("addedAt", "desc", 5)).getNextCursor());
+    }
+
+    @Test
+    void findLibraryPage_rejectsGarbageCursor() {
+        LibraryQuery q = query("addedAt", "desc", 5);
+        q.setCursor("not-a-cursor");
+        assertThrows(BadRequestException.class, () -> repository.findLibraryPage(1L, q));
+    }
+
+    @Test
+    void streamLibrary_feedsEveryEntryOfTheUserInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        repository.streamLibrary(1L, entry -> ids.add(entry.getId()));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids);
+    }
+
+    private List<Long> walk(LibraryQuery query) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            query.setCursor(cursor);
+            CursorPage<UserMovieResponse> page = repository.findLibraryPage(1L, query);
+            page.getItems().forEach(item -> ids.add(item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static LibraryQuery query(String sort, String dir, int limit) {
+        LibraryQuery q = new LibraryQuery();
+        q.setSort(sort);
+        q.setDir(dir);
+        q.setLimit(limit);
+        return q;
+    }
+
+    @Test
+    void findLibraryStates_returnsOnlyThatUsersMatchingMovies() {
+        List<UserMovieRepositoryCustom.LibraryState> states =
+                repository.findLibraryStates(1L, List.of("ext-2", "ext-5", "other", "unknown"));
+
+        assertEquals(2, states.size());
+        assertTrue(states.contains(new UserMovieRepositoryCustom.LibraryState("ext-2", WatchStatus.PLANNED, false)));
+        assertTrue(states.contains(new UserMovieRepositoryCustom.LibraryState("ext-5", WatchStatus.PLANNED, true)));
+        assertTrue(repository.findLibraryStates(1L, List.of()).isEmpty());
+    }
+
+    @Test
+    void findChangedSince_returnsEntriesWithNewerVersion_oldestChangeFirst() {
+        jdbcTemplate.update("update user_movies set change_version = 9 where id = 1");
+
+        List<UserMovieResponse> changed = repository.findChangedSince(1L, 3L);
+
+        assertEquals(List.of(4L, 5L, 1L), changed.stream().map(UserMovieResponse::getId).toList());
+        assertEquals("Alien", changed.get(2).getMovie().getTitle());
+    }
+
+    @Test
+    void tombstones_areReadBackPerUserAfterVersion() {
+        repository.insertTombstone(1L, 20L, 200L, 2L, LocalDateTime.of(2024, 1, 1, 0, 0));
+        repository.insertTombstone(1L, 21L, 201L, 6L, LocalDateTime.of(2024, 1, 5, 0, 0));
+        repository.insertTombstone(2L, 22L, 202L, 6L, LocalDateTime.of(2024, 1, 5, 0, 0));
+
+        List<LibraryTombstone> tombstones = repository.findTombstonesSince(1L, 2L);
+
+        assertEquals(1, tombstones.size());
+        assertEquals(21L, tombstones.get(0).getUserMovieId());
+        assertEquals(201L, tombstones.get(0).getMovieId());
+        assertEquals(LocalDateTime.of(2024, 1, 5, 0, 0), tombstones.get(0).getDeletedAt());
+    }
+
+    @Test
+    void nextLibraryVersion_bumpsAndReturnsTheUsersVersion() {
+        assertEquals(6L, repository.nextLibraryVersion(1L));
+        assertEquals(7L, repository.nextLibraryVersion(1L));
+        assertEquals(new UserMovieRepositoryCustom.ChangeCursor(7L, 0L), repository.findChangeCursor(1L).orElseThrow());
+        assertThrows(NotFoundException.class, () -> repository.nextLibraryVersion(3L));
+    }
+
+    @Test
+    void pruneTombstones_dropsOldOnes_andRaisesFloorToNewestDroppedVersion() {
+        repository.insertTombstone(1L, 20L, 200L, 2L, LocalDateTime.of(2024, 1, 1, 0, 0));
+        repository.insertTombstone(1L, 21L, 201L, 4L, LocalDateTime.of(2024, 1, 2, 0, 0));
+        repository.insertTombstone(1L, 22L, 202L, 5L, LocalDateTime.of(2024, 3, 1, 0, 0));
+
+        assertEquals(2, repository.pruneTombstones(LocalDateTime.of(2024, 2, 1, 0, 0)));
+
+        assertEquals(List.of(22L), repository.findTombstonesSince(1L, 0L).stream()
+                .map(LibraryTombstone::getUserMovieId).toList());
+        assertEquals(4L, repository.findChangeCursor(1L).orElseThrow().floor());
+        assertEquals(0L, repository.findChangeCursor(2L).orElseThrow().floor());
+    }
+
+    private void insert(long id, String title, int year, String status, Integer rating, boolean liked, String createdAt) {
+        jdbcTemplate.update("insert into movies (id, external_id, title, year) values (?, ?, ?, ?)",
+                id, "ext-" + id, title, year);
+        jdbcTemplate.update("""
+                insert into user_movies (id, user_id, movie_id, status, rating, liked, created_at, updated_at, change_version)
+                values (?, 1, ?, ?, ?, ?, cast(? as timestamp), cast(? as timestamp), ?)
+                """, id, id, status, rating, liked, createdAt, createdAt, id);
+    }
+}
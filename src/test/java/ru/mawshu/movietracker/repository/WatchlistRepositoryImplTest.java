@@ -0,0 +1,239 @@
+package ru.mawshu.movietracker.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.WatchlistItemResponse;
+import ru.mawshu.movietracker.dto.WatchlistSummaryResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
+import ru.mawshu.movietracker.repository.WatchlistRepositoryCustom.WatchlistExportRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchlistRepositoryImplTest {
+
+    SingleConnectionDataSource db;
+    JdbcTemplate jdbcTemplate;
+    WatchlistRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        db = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;NON_KEYWORDS=YEAR", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("""
+                create table movies (
+                    id bigint primary key, external_id varchar(64) not null, title varchar(255) not null,
+                    year integer, runtime_minutes integer, poster_url varchar(1024), overview text
+                )
+                """);
+        jdbcTemplate.execute("""
+                create table watchlists (
+                    id bigint primary key, user_id bigint not null, title varchar(255) not null,
+                    description text, created_at timestamp not null
+                )
+                """);
+        jdbcTemplate.execute("""
+                create table watchlist_items (
+                    id bigint generated by default as identity primary key, watchlist_id bigint not null, movie_id bigint not null,
+                    position integer not null, added_at timestamp not null
+                )
+                """);
+        jdbcTemplate.update("insert into movies (id, external_id, title) values (1, 'a', 'Alien'), (2, 'b', 'Brazil')");
+        jdbcTemplate.update("""
+                insert into watchlists (id, user_id, title, created_at) values
+                    (10, 1, 'Favourites', current_timestamp),
+                    (11, 1, 'Empty', current_timestamp),
+                    (12, 2, 'Someone else', current_timestamp)
+                """);
+        jdbcTemplate.update("""
+                insert into watchlist_items (id, watchlist_id, movie_id, position, added_at) values
+                    (100, 10, 2, 2, current_timestamp),
+                    (101, 10, 1, 1, current_timestamp),
+                    (102, 12, 1, 1, current_timestamp)
+                """);
+        repository = new WatchlistRepositoryImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.destroy();
+    }
+
+    @Test
+    void streamUserWatchlists_ordersItemsByPosition_andKeepsEmptyWatchlists() {
+        List<WatchlistExportRow> rows = new ArrayList<>();
+        repository.streamUserWatchlists(1L, rows::add);
+
+        assertEquals(3, rows.size());
+        assertEquals(101L, rows.get(0).item().getId());
+        assertEquals("Alien", rows.get(0).item().getMovie().getTitle());
+        assertEquals(100L, rows.get(1).item().getId());
+        assertEquals(11L, rows.get(2).watchlistId());
+        assertNull(rows.get(2).item());
+    }
+
+    @Test
+    void findSummariesByUserId_countsItems_andPrefersItemsWithPosters() {
+        jdbcTemplate.update("update movies set poster_url = 'brazil.jpg' where id = 2");
+        jdbcTemplate.update("insert into movies (id, external_id, title, poster_url) values (3, 'c', 'Casablanca', 'casablanca.jpg')");
+        jdbcTemplate.update("insert into watchlist_items (id, watchlist_id, movie_id, position, added_at) values (103, 10, 3, 3, current_timestamp)");
+
+        List<WatchlistSummaryResponse> summaries = repository.findSummariesByUserId(1L, 1);
+
+        assertEquals(2, summaries.size());
+        assertEquals(10L, summaries.get(0).getId());
+        assertEquals(3, summaries.get(0).getItemCount());
+        assertEquals(List.of("brazil.jpg"), summaries.get(0).getPosterUrls());
+        assertEquals(11L, summaries.get(1).getId());
+        assertEquals(0, summaries.get(1).getItemCount());
+        assertEquals(List.of(), summaries.get(1).getPosterUrls());
+
+        assertEquals(List.of("brazil.jpg", "casablanca.jpg"), repository.findSummariesByUserId(1L, 4).get(0).getPosterUrls());
+    }
+
+    @Test
+    void findItemsPage_walksItemsInPositionOrder() {
+        jdbcTemplate.update("insert into watchlist_items (id, watchlist_id, movie_id, position, added_at) values (103, 10, 1, 3, current_timestamp)");
+
+        CursorPage<WatchlistItemResponse> first = repository.findItemsPage(10L, null, 2);
+        assertEquals(List.of(101L, 100L), first.getItems().stream().map(WatchlistItemResponse::getId).toList());
+        assertEquals("Alien", first.getItems().get(0).getMovie().getTitle());
+        assertNotNull(first.getNextCursor());
+
+        CursorPage<WatchlistItemResponse> second = repository.findItemsPage(10L, first.getNextCursor(), 2);
+        assertEquals(List.of(103L), second.getItems().stream().map(WatchlistItemResponse::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void findItemsPage_rejectsForeignCursor() {
+        String cursor = new KeysetCursor("addedAt", 1L).encode();
+
+        assertThrows(BadRequestException.class, () -> repository.findItemsPage(10L, cursor, 2));
+    }
+
+    @Test
+    void reorderItems_rewritesPositionsOfThatWatchlistOnly() {
+        int updated = repository.reorderItems(10L, List.of(100L, 101L), 1024);
+
+        assertEquals(2, updated);
+        assertEquals(List.of(100L, 101L),
+                jdbcTemplate.queryForList("select id from watchlist_items where watchlist_id = 10 order by position", Long.class));
+        assertEquals(List.of(1024, 2048),
+                jdbcTemplate.queryForList("select position from watchlist_items where watchlist_id = 10 order by position", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select position from watchlist_items where id = 102", Integer.class));
+    }
+
+    @Test
+    void reorderItems_thousandItems_isOneFastStatement() {
+        jdbcTemplate.batchUpdate("insert into watchlist_items (id, watchlist_id, movie_id, position, added_at) values (?, 11, 1, ?, current_timestamp)",
+                IntStream.rangeClosed(1, 1000).mapToObj(i -> new Object[]{1000L + i, i}).toList());
+        List<Long> reversed = new ArrayList<>();
+        for (long id = 2000; id > 1000; id--) {
+            reversed.add(id);
+        }
+        repository.reorderItems(11L, reversed, 1024);
+
+        long started = System.nanoTime();
+        int updated = repository.reorderItems(11L, reversed, 1024);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(1000, updated);
+        assertEquals(reversed,
+                jdbcTemplate.queryForList("select id from watchlist_items where watchlist_id = 11 order by position", Long.class));
+        assertTrue(elapsedMillis < 500, "reorder of 1000 items took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void bumpVersion_bumpsWatchlistAndOwnersCollection() {
+        jdbcTemplate.execute("alter table watchlists add column version bigint not null default 0");
+        jdbcTemplate.execute("create table users (id bigint primary key, watchlists_version bigint not null default 0)");
+        jdbcTemplate.update("insert into users (id) values (1), (2)");
+
+        repository.bumpVersion(10L);
+        repository.bumpVersion(10L);
+
+        assertEquals(2L, jdbcTemplate.queryForObject("select version from watchlists where id = 10", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("select version from watchlists where id = 11", Long.class));
+        assertEquals(2L, jdbcTemplate.queryForObject("select watchlists_version from users where id = 1", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("select watchlists_version from users where id = 2", Long.class));
+    }
+
+    @Test
+    void nextPosition_concurrentAppendsToOneWatchlist_neverShareAPosition() throws Exception {
+        DriverManagerDataSource pool = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(pool);
+        jdbc.execute("create table watchlists (id bigint primary key, last_position integer not null default 0)");
+        jdbc.execute("""
+                create table watchlist_items (
+                    id bigint primary key, watchlist_id bigint not null, movie_id bigint not null,
+                    position integer not null, added_at timestamp not null,
+                    constraint uq_watchlist_position unique (watchlist_id, position)
+                )
+                """);
+        jdbc.update("insert into watchlists (id) values (10)");
+        WatchlistRepositoryImpl concurrentRepository = new WatchlistRepositoryImpl(jdbc);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(pool));
+
+        int threads = 8;
+        int appendsPerThread = 50;
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        tx.executeWithoutResult(status -> jdbc.update(
+                                "insert into watchlist_items (id, watchlist_id, movie_id, position, added_at) values (?, 10, 1, ?, current_timestamp)",
+                                ids.incrementAndGet(), concurrentRepository.nextPosition(10L, 1024)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * appendsPerThread;
+        assertEquals(total, jdbc.queryForObject("select count(distinct position) from watchlist_items", Integer.class));
+        assertEquals(total * 1024, jdbc.queryForObject("select max(position) from watchlist_items", Integer.class));
+        assertEquals(total * 1024, jdbc.queryForObject("select last_position from watchlists where id = 10", Integer.class));
+        jdbc.execute("shutdown");
+    }
+
+    @Test
+    void batchInsertItems_assignsConsecutivePositionsInOrder() {
+        repository.batchInsertItems(11L, List.of(2L, 1L), 1024, 1024);
+
+        assertEquals(List.of(2L, 1L),
+                jdbcTemplate.queryForList("select movie_id from watchlist_items where watchlist_id = 11 order by position", Long.class));
+        assertEquals(List.of(1024, 2048),
+                jdbcTemplate.queryForList("select position from watchlist_items where watchlist_id = 11 order by position", Integer.class));
+    }
+}
@@ -0,0 +1,193 @@
+package ru.mawshu.movietracker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
+import ru.mawshu.movietracker.dto.LibraryImportEntry;
+import ru.mawshu.movietracker.dto.LibraryImportResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
+import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom.LibraryUpsert;
+import ru.mawshu.movietracker.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LibraryImportServiceTest {
+
+    @Mock UserRepository userRepository;
+    @Mock UserMovieRepository userMovieRepository;
+    @Mock MovieBatchImportService movieBatchImportService;
+    @Mock LibraryMembershipIndex membershipIndex;
+
+    LibraryImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new LibraryImportService(userRepository, userMovieRepository, movieBatchImportService, membershipIndex);
+    }
+
+    @Test
+    void importEntries_userMissing_throwsNotFound() {
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class,
+                () -> service.importEntries(1L, List.of(new LibraryImportEntry("10", null, null, null, null))));
+        verifyNoInteractions(movieBatchImportService, userMovieRepository);
+    }
+
+    @Test
+    void importEntries_resolvesMoviesOnce_andUpsertsInChunks() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        int count = LibraryImportService.UPSERT_CHUNK_SIZE * 2 + 1;
+        List<LibraryImportEntry> entries = new ArrayList<>();
+        List<BatchImportResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(new LibraryImportEntry(String.valueOf(i), "planned", null, null, null));
+            results.add(i % 2 == 0
+                    ? BatchImportResult.existing(String.valueOf(i), (long) i)
+                    : BatchImportResult.imported(String.valueOf(i), (long) i));
+        }
+        when(movieBatchImportService.importMovies(anyList(), eq(LibraryImportService.MAX_NEW_MOVIES))).thenReturn(new BatchImportResponse(results));
+
+        LibraryImportResponse res = service.importEntries(1L, entries);
+
+        assertEquals(count, res.getTotal());
+        assertEquals(count, res.getSaved());
+        assertEquals(count / 2, res.getMoviesImported());
+        assertEquals(0, res.getFailed());
+        verify(movieBatchImportService, times(1)).importMovies(anyList(), eq(LibraryImportService.MAX_NEW_MOVIES));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LibraryUpsert>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(userMovieRepository, times(3)).batchUpsert(eq(1L), chunks.capture());
+        assertEquals(List.of(500, 500, 1), chunks.getAllValues().stream().map(List::size).toList());
+    }
+
+    @Test
+    void importEntries_failedChunk_isReportedRowByRow_andOtherChunksStillSave() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        int count = LibraryImportService.UPSERT_CHUNK_SIZE + 2;
+        List<LibraryImportEntry> entries = new ArrayList<>();
+        List<BatchImportResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(new LibraryImportEntry(String.valueOf(i), "planned", null, null, null));
+            results.add(BatchImportResult.existing(String.valueOf(i), (long) i));
+        }
+        when(movieBatchImportService.importMovies(anyList(), eq(LibraryImportService.MAX_NEW_MOVIES)))
+                .thenReturn(new BatchImportResponse(results));
+        doNothing()
+                .doThrow(new QueryTimeoutException("statement timeout"))
+                .when(userMovieRepository).batchUpsert(eq(1L), anyList());
+
+        LibraryImportResponse res = service.importEntries(1L, entries);
+
+        assertEquals(LibraryImportService.UPSERT_CHUNK_SIZE, res.getSaved());
+        assertEquals(2, res.getFailed());
+        assertEquals(List.of(count - 1, count), res.getErrors().stream().map(e -> e.getRow()).toList());
+        assertEquals(String.valueOf(count - 1), res.getErrors().get(1).getExternalId());
+        verify(membershipIndex).invalidate(1L);
+    }
+
+    @Test
+    void importEntries_reportsInvalidRowsAndUnresolvedMovies_lastDuplicateWins() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(movieBatchImportService.importMovies(List.of("20", "10", "30"), LibraryImportService.MAX_NEW_MOVIES)).thenReturn(new BatchImportResponse(List.of(
+                BatchImportResult.existing("20", 2L),
+                BatchImportResult.existing("10", 1L),
+                BatchImportResult.failed("30", "404 Not Found"))));
+
+        LibraryImportResponse res = service.importEntries(1L, List.of(
+                new LibraryImportEntry("10", "planned", null, null, null),
+                new LibraryImportEntry("20", "", 8, true, "2024-05-01"),
+                new LibraryImportEntry("10", "WATCHED", 7, null, "2024-06-01T20:30:00"),
+                new LibraryImportEntry(" ", "planned", null, null, null),
+                new LibraryImportEntry("40", "dropped", null, null, null),
+                new LibraryImportEntry("50", null, 11, null, null),
+                new LibraryImportEntry("60", null, null, null, "yesterday"),
+                new LibraryImportEntry("30", null, null, null, null)));
+
+        assertEquals(8, res.getTotal());
+        assertEquals(2, res.getSaved());
+        assertEquals(5, res.getFailed());
+        assertEquals(List.of(4, 5, 6, 7, 8), res.getErrors().stream().map(e -> e.getRow()).toList());
+        assertEquals("404 Not Found", res.getErrors().get(4).getMessage());
+
+        verify(userMovieRepository).batchUpsert(1L, List.of(
+                new LibraryUpsert(2L, WatchStatus.WATCHED, 8, true, LocalDateTime.of(2024, 5, 1, 0, 0)),
+                new LibraryUpsert(1L, WatchStatus.WATCHED, 7, null, LocalDateTime.of(2024, 6, 1, 20, 30))));
+    }
+
+    @Test
+    void importCsv_matchesColumnsByName_andHandlesQuotes() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(movieBatchImportService.importMovies(List.of("603", "550"), LibraryImportService.MAX_NEW_MOVIES)).thenReturn(new BatchImportResponse(List.of(
+                BatchImportResult.existing("603", 3L),
+                BatchImportResult.existing("550", 5L))));
+
+        String csv = """
+                Title,TMDB ID,Status,Rating,Liked,Watched At
+                "The Matrix, 1999",603,watched,9,yes,1999-04-01
+                Fight Club,550,planned,,,
+                Broken,551,planned,great,,
+                """;
+
+        LibraryImportResponse res = service.importCsv(1L, csv);
+
+        assertEquals(3, res.getTotal());
+        assertEquals(2, res.getSaved());
+        assertEquals(1, res.getFailed());
+        assertEquals(4, res.getErrors().get(0).getRow());
+        verify(userMovieRepository).batchUpsert(1L, List.of(
+                new LibraryUpsert(3L, WatchStatus.WATCHED, 9, true, LocalDateTime.of(1999, 4, 1, 0, 0)),
+                new LibraryUpsert(5L, WatchStatus.PLANNED, null, null, null)));
+    }
+
+    @Test
+    void importCsv_quotedLineBreak_staysInsideItsField() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(movieBatchImportService.importMovies(List.of("603"), LibraryImportService.MAX_NEW_MOVIES)).thenReturn(new BatchImportResponse(List.of(
+                BatchImportResult.existing("603", 3L))));
+
+        String csv = "Title,TMDB ID,Status,Rating\r\n"
+                + "\"The Matrix\r\n(\"\"director's cut\"\")\",603,watched,9\r\n"
+                + "Fight Club,550,planned,x\r\n";
+
+        LibraryImportResponse res = service.importCsv(1L, csv);
+
+        assertEquals(2, res.getTotal());
+        assertEquals(1, res.getSaved());
+        assertEquals(4, res.getErrors().get(0).getRow());
+        verify(userMovieRepository).batchUpsert(1L, List.of(
+                new LibraryUpsert(3L, WatchStatus.WATCHED, 9, null, null)));
+    }
+
+    @Test
+    void importCsv_unterminatedQuote_isRejected() {
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> service.importCsv(1L, "externalId,title\n603,\"The Matrix\n550,Fight Club\n"));
+
+        assertEquals("CSV has an unterminated quoted field starting on line 2", ex.getMessage());
+        verifyNoInteractions(movieBatchImportService);
+    }
+
+    @Test
+    void importCsv_withoutExternalIdColumn_isRejected() {
+        assertThrows(BadRequestException.class, () -> service.importCsv(1L, "title,status\nMatrix,planned\n"));
+        verifyNoInteractions(movieBatchImportService);
+    }
+}
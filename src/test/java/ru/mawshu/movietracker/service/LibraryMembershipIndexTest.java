@@ -0,0 +1,125 @@
+package ru.mawshu.movietracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserRepository;
+import ru.mawshu.movietracker.repository.WatchlistItemRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LibraryMembershipIndexTest {
+
+    @Mock UserRepository userRepository;
+    @Mock UserMovieRepository userMovieRepository;
+    @Mock WatchlistItemRepository watchlistItemRepository;
+
+    LibraryMembershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LibraryMembershipIndex(userRepository, userMovieRepository, watchlistItemRepository,
+                new SimpleMeterRegistry(), 2, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void get_buildsOnce_thenAnswersFromMemory() {
+        stubUser(1L, List.of(30L, 10L), List.of(20L), List.of(row(7L, 10L), row(8L, 10L), row(8L, 20L)));
+
+        LibraryMembershipIndex.Membership first = index.get(1L);
+        LibraryMembershipIndex.Membership second = index.get(1L);
+
+        assertSame(first, second);
+        assertEquals(WatchStatus.PLANNED, first.status(30L));
+        assertEquals(WatchStatus.WATCHED, first.status(20L));
+        assertNull(first.status(99L));
+        assertEquals(List.of(7L, 8L), first.watchlistsContaining(10L));
+        assertTrue(first.inWatchlist(8L, 20L));
+        assertFalse(first.inWatchlist(7L, 20L));
+        verify(userMovieRepository, times(WatchStatus.values().length)).findMovieIdsByUserIdAndStatus(eq(1L), any());
+    }
+
+    @Test
+    void get_unknownUser_throwsAndCachesNothing() {
+        when(userRepository.existsById(5L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> index.get(5L));
+        assertThrows(NotFoundException.class, () -> index.get(5L));
+        verify(userRepository, times(2)).existsById(5L);
+    }
+
+    @Test
+    void writesCommittedInOneOrder_butHookedInTheOther_endOnCommittedRows() {
+        stubUser(1L, List.of(10L), List.of(), List.of(row(7L, 10L)));
+        index.get(1L);
+
+        // First commit: movie 10 watched and added to watchlist 8. Second commit: it leaves the library
+        // and watchlist 7. The second commit's hook runs first.
+        when(userMovieRepository.findMovieIdsByUserIdAndStatus(1L, WatchStatus.PLANNED)).thenReturn(List.of());
+        when(watchlistItemRepository.findWatchlistMoviesByUserId(1L)).thenReturn(List.of(row(8L, 10L)));
+        index.invalidate(1L);
+        index.invalidate(1L);
+
+        LibraryMembershipIndex.Membership m = index.get(1L);
+        assertNull(m.status(10L));
+        assertEquals(List.of(8L), m.watchlistsContaining(10L));
+    }
+
+    @Test
+    void invalidate_insideTransaction_waitsForCommit() {
+        stubUser(1L, List.of(), List.of(), List.of());
+        LibraryMembershipIndex.Membership before = index.get(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.invalidate(1L);
+            assertSame(before, index.get(1L));
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                sync.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNotSame(before, index.get(1L));
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        stubUser(1L, List.of(), List.of(), List.of());
+        index.get(1L);
+
+        index.invalidate(1L);
+        index.get(1L);
+
+        verify(userRepository, times(2)).existsById(1L);
+    }
+
+    private void stubUser(Long userId, List<Long> planned, List<Long> watched,
+                          List<WatchlistItemRepository.WatchlistMovie> watchlistMovies) {
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userMovieRepository.findMovieIdsByUserIdAndStatus(userId, WatchStatus.PLANNED)).thenReturn(planned);
+        when(userMovieRepository.findMovieIdsByUserIdAndStatus(userId, WatchStatus.WATCHED)).thenReturn(watched);
+        when(watchlistItemRepository.findWatchlistMoviesByUserId(userId)).thenReturn(watchlistMovies);
+    }
+
+    private static WatchlistItemRepository.WatchlistMovie row(Long watchlistId, Long movieId) {
+        return new WatchlistItemRepository.WatchlistMovie() {
+            @Override public Long getWatchlistId() { return watchlistId; }
+            @Override public Long getMovieId() { return movieId; }
+        };
+    }
+}
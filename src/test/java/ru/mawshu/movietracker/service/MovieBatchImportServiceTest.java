@@ -0,0 +1,127 @@
+package ru.mawshu.movietracker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.mawshu.movietracker.domain.Movie;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
+import ru.mawshu.movietracker.integration.ExternalMovieApiClient;
+import ru.mawshu.movietracker.integration.TmdbMovie;
+import ru.mawshu.movietracker.repository.MovieRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovieBatchImportServiceTest {
+
+    @Mock MovieRepository movieRepository;
+    @Mock ExternalMovieApiClient externalMovieApiClient;
+
+    MovieBatchImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MovieBatchImportService(movieRepository, externalMovieApiClient, 2, new MockEnvironment());
+    }
+
+    @Test
+    void importMovies_skipsExisting_fetchesMissing_andReportsPerId() {
+        Movie existing = movie(1L, "10");
+        Movie inserted = movie(2L, "20");
+
+        when(movieRepository.findByExternalIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return ids.contains("10") ? List.of(existing) : List.of(inserted);
+        });
+        when(externalMovieApiClient.getMovieDetails("20")).thenReturn(details("Twenty"));
+        when(externalMovieApiClient.getMovieDetails("30")).thenThrow(new IllegalStateException("404 Not Found"));
+
+        BatchImportResponse res = service.importMovies(List.of("10", "20", " 20 ", "30"));
+
+        assertEquals(1, res.getExisting());
+        assertEquals(1, res.getImported());
+        assertEquals(1, res.getFailed());
+        assertEquals(3, res.getResults().size());
+
+        BatchImportResult r10 = res.getResults().get(0);
+        assertEquals(BatchImportResult.Status.EXISTING, r10.getStatus());
+        assertEquals(1L, r10.getMovieId());
+
+        BatchImportResult r20 = res.getResults().get(1);
+        assertEquals(BatchImportResult.Status.IMPORTED, r20.getStatus());
+        assertEquals(2L, r20.getMovieId());
+
+        BatchImportResult r30 = res.getResults().get(2);
+        assertEquals(BatchImportResult.Status.FAILED, r30.getStatus());
+        assertEquals("404 Not Found", r30.getError());
+
+        verify(externalMovieApiClient, never()).getMovieDetails("10");
+
+        ArgumentCaptor<List<Movie>> captor = ArgumentCaptor.forClass(List.class);
+        verify(movieRepository).batchInsert(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("Twenty", captor.getValue().get(0).getTitle());
+        assertNotNull(captor.getValue().get(0).getCreatedAt());
+    }
+
+    @Test
+    void importMovies_neverExceedsParallelismCap() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        when(movieRepository.findByExternalIdIn(anyCollection())).thenReturn(List.of());
+        when(externalMovieApiClient.getMovieDetails(anyString())).thenAnswer(inv -> {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return details("T");
+        });
+
+        List<String> ids = java.util.stream.IntStream.range(0, 12).mapToObj(String::valueOf).toList();
+        BatchImportResponse res = service.importMovies(ids);
+
+        assertTrue(peak.get() <= 2, "peak concurrency was " + peak.get());
+        verify(externalMovieApiClient, times(12)).getMovieDetails(anyString());
+        assertEquals(12, res.getResults().size());
+    }
+
+    @Test
+    void importMovies_overFetchLimit_reportsTheRestWithoutCallingTmdb() {
+        when(movieRepository.findByExternalIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return ids.contains("10") ? List.of(movie(1L, "10")) : List.of(movie(2L, "20"));
+        });
+        when(externalMovieApiClient.getMovieDetails("20")).thenReturn(details("Twenty"));
+
+        BatchImportResponse res = service.importMovies(List.of("10", "20", "30"), 1);
+
+        assertEquals(List.of(BatchImportResult.Status.EXISTING, BatchImportResult.Status.IMPORTED, BatchImportResult.Status.FAILED),
+                res.getResults().stream().map(BatchImportResult::getStatus).toList());
+        assertTrue(res.getResults().get(2).getError().startsWith("Not fetched"));
+        verify(externalMovieApiClient, never()).getMovieDetails("30");
+    }
+
+    private static Movie movie(long id, String externalId) {
+        Movie m = new Movie();
+        ReflectionTestUtils.setField(m, "id", id);
+        m.setExternalId(externalId);
+        m.setTitle("T");
+        return m;
+    }
+
+    private static TmdbMovie details(String title) {
+        return new TmdbMovie(null, title, null, null, null, null);
+    }
+}
@@ -4,19 +4,34 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.mawshu.movietracker.domain.Movie;
+import ru.mawshu.movietracker.domain.WatchStatus;
 import ru.mawshu.movietracker.dto.MovieSearchItem;
 import ru.mawshu.movietracker.dto.MovieResponse;
 import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.exception.UpstreamUnavailableException;
 import ru.mawshu.movietracker.integration.ExternalMovieApiClient;
+import ru.mawshu.movietracker.integration.TmdbMovie;
+import ru.mawshu.movietracker.integration.TmdbSearchPage;
 import ru.mawshu.movietracker.repository.MovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom.LibraryState;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,13 +40,16 @@ import static org.mockito.Mockito.*;
 class MovieCatalogServiceTest {
 
     @Mock MovieRepository movieRepository;
+    @Mock UserMovieRepository userMovieRepository;
     @Mock ExternalMovieApiClient externalMovieApiClient;
+    @Mock PlatformTransactionManager transactionManager;
 
     MovieCatalogService service;
 
     @BeforeEach
     void setUp() {
-        service = new MovieCatalogService(movieRepository, externalMovieApiClient);
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.TMDB);
     }
 
     @Test
@@ -64,7 +82,7 @@ class MovieCatalogServiceTest {
     @Test
     void searchMovies_whenResultsMissing_returnsEmptyList() {
         when(externalMovieApiClient.searchMovies("q", 0, 1))
-                .thenReturn(Map.of("page", 1));
+                .thenReturn(new TmdbSearchPage(1, null));
 
         List<MovieSearchItem> res = service.searchMovies("q", 0, 1, 10);
 
@@ -73,22 +91,11 @@ class MovieCatalogServiceTest {
 
     @Test
     void searchMovies_mapsFields_limitsBySize_andBuildsPosterUrlAndYear() {
-        Map<String, Object> row1 = Map.of(
-                "id", 101,
-                "title", "Film A",
-                "release_date", "2020-05-01",
-                "overview", "desc",
-                "poster_path", "/p1.jpg"
-        );
-        Map<String, Object> row2 = new java.util.HashMap<>();
-        row2.put("id", 202);
-        row2.put("title", "Film B");
-        row2.put("release_date", "bad");
-        row2.put("overview", "");
-        row2.put("poster_path", null);
+        TmdbMovie row1 = new TmdbMovie(101L, "Film A", "2020-05-01", "desc", "/p1.jpg", null);
+        TmdbMovie row2 = new TmdbMovie(202L, "Film B", "bad", "", null, null);
 
         when(externalMovieApiClient.searchMovies("q", 2020, 1))
-                .thenReturn(Map.of("results", List.of(row1, row2)));
+                .thenReturn(new TmdbSearchPage(1, List.of(row1, row2)));
 
         List<MovieSearchItem> res = service.searchMovies("q", 2020, 1, 1);
 
@@ -102,6 +109,111 @@ class MovieCatalogServiceTest {
         assertEquals("desc", item.getOverview());
     }
 
+    @Test
+    void searchMovies_whenUpstreamUnavailable_servesLocalMovies() {
+        when(externalMovieApiClient.searchMovies("matrix", null, 2))
+                .thenThrow(new UpstreamUnavailableException("down", Duration.ofSeconds(30), null));
+        when(movieRepository.searchLocal("matrix", null, 5, 5))
+                .thenReturn(List.of(item("603", "The Matrix")));
+
+        List<MovieSearchItem> res = service.searchMovies("matrix", null, 2, 5);
+
+        assertEquals(1, res.size());
+        assertEquals("603", res.get(0).getExternalId());
+        assertEquals("The Matrix", res.get(0).getTitle());
+    }
+
+    @Test
+    void searchMovies_blend_whenLocalFillsPage_neverCallsTmdb() {
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.BLEND);
+        when(movieRepository.searchLocal("matrix", null, 2, 0))
+                .thenReturn(List.of(item("603", "The Matrix"), item("604", "The Matrix Reloaded")));
+
+        List<MovieSearchItem> res = service.searchMovies("matrix", null, 1, 2);
+
+        assertEquals(List.of("603", "604"), res.stream().map(MovieSearchItem::getExternalId).toList());
+        verifyNoInteractions(externalMovieApiClient);
+    }
+
+    @Test
+    void searchMovies_blend_fillsRestOfPageFromTmdb_withoutDuplicates_upToSize() {
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.BLEND);
+        when(movieRepository.searchLocal("matrix", null, 3, 0))
+                .thenReturn(List.of(item("603", "The Matrix")));
+        when(externalMovieApiClient.searchMovies("matrix", null, 1)).thenReturn(new TmdbSearchPage(1, List.of(
+                new TmdbMovie(603L, "The Matrix", "1999-03-30", "", null, null),
+                new TmdbMovie(604L, "The Matrix Reloaded", "2003-05-15", "", null, null),
+                new TmdbMovie(605L, "The Matrix Revolutions", "2003-11-05", "", null, null),
+                new TmdbMovie(606L, "The Animatrix", "2003-06-03", "", null, null))));
+
+        List<MovieSearchItem> res = service.searchMovies("matrix", null, 1, 3);
+
+        assertEquals(List.of("603", "604", "605"), res.stream().map(MovieSearchItem::getExternalId).toList());
+    }
+
+    @Test
+    void searchMovies_blend_laterPages_continueTheMergedList() {
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.BLEND);
+        List<MovieSearchItem> localHits = List.of(item("603", "The Matrix"), item("604", "The Matrix Reloaded"),
+                item("605", "The Matrix Revolutions"));
+        when(movieRepository.searchLocal("matrix", null, 2, 2)).thenReturn(localHits.subList(2, 3));
+        when(movieRepository.searchLocal("matrix", null, 2, 4)).thenReturn(List.of());
+        when(movieRepository.searchLocal("matrix", null, MovieCatalogService.BLEND_LOCAL_HITS, 0)).thenReturn(localHits);
+        when(externalMovieApiClient.searchMovies("matrix", null, 1)).thenReturn(new TmdbSearchPage(1, List.of(
+                new TmdbMovie(606L, "The Animatrix", "2003-06-03", "", null, null),
+                new TmdbMovie(603L, "The Matrix", "1999-03-30", "", null, null),
+                new TmdbMovie(607L, "The Matrix Resurrections", "2021-12-16", "", null, null),
+                new TmdbMovie(608L, "Enter the Matrix", "2003-05-15", "", null, null))));
+
+        List<MovieSearchItem> second = service.searchMovies("matrix", null, 2, 2);
+        List<MovieSearchItem> third = service.searchMovies("matrix", null, 3, 2);
+
+        assertEquals(List.of("605", "606"), second.stream().map(MovieSearchItem::getExternalId).toList());
+        assertEquals(List.of("607", "608"), third.stream().map(MovieSearchItem::getExternalId).toList());
+    }
+
+    @Test
+    void searchMovies_localMode_neverCallsTmdb() {
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.LOCAL);
+        when(movieRepository.searchLocal("nothing", null, 10, 0)).thenReturn(List.of());
+
+        assertTrue(service.searchMovies("nothing", null, 1, 10).isEmpty());
+        verifyNoInteractions(externalMovieApiClient);
+    }
+
+    @Test
+    void searchMovies_withUser_annotatesHitsFromOneLibraryLookup() {
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.LOCAL);
+        when(movieRepository.searchLocal("matrix", null, 10, 0))
+                .thenReturn(List.of(item("603", "The Matrix"), item("604", "The Matrix Reloaded")));
+        when(userMovieRepository.findLibraryStates(eq(7L), argThat(ids -> ids.size() == 2)))
+                .thenReturn(List.of(new LibraryState("604", WatchStatus.WATCHED, true)));
+
+        List<MovieSearchItem> res = service.searchMovies("matrix", null, 1, 10, 7L);
+
+        assertNull(res.get(0).getStatus());
+        assertNull(res.get(0).getLiked());
+        assertEquals(WatchStatus.WATCHED, res.get(1).getStatus());
+        assertEquals(true, res.get(1).getLiked());
+        verify(userMovieRepository, times(1)).findLibraryStates(anyLong(), anyCollection());
+    }
+
+    @Test
+    void searchMovies_withoutUser_skipsLibraryLookup() {
+        service = new MovieCatalogService(movieRepository, userMovieRepository, externalMovieApiClient, transactionManager,
+                MovieCatalogService.SearchMode.LOCAL);
+        when(movieRepository.searchLocal("matrix", null, 10, 0)).thenReturn(List.of(item("603", "The Matrix")));
+
+        service.searchMovies("matrix", null, 1, 10);
+
+        verifyNoInteractions(userMovieRepository);
+    }
+
     @Test
     void importMovie_whenExists_doesNotCallExternalApi() {
         Movie existing = new Movie();
@@ -125,13 +237,7 @@ class MovieCatalogServiceTest {
         when(movieRepository.findByExternalId("555")).thenReturn(Optional.empty());
 
         when(externalMovieApiClient.getMovieDetails("555"))
-                .thenReturn(Map.of(
-                        "title", "Imported",
-                        "overview", "ov",
-                        "release_date", "2019-01-01",
-                        "runtime", 123,
-                        "poster_path", "/pp.jpg"
-                ));
+                .thenReturn(new TmdbMovie(555L, "Imported", "2019-01-01", "ov", "/pp.jpg", 123));
 
         when(movieRepository.findByExternalId("555")).thenReturn(Optional.empty());
 
@@ -157,6 +263,74 @@ class MovieCatalogServiceTest {
         assertNotNull(captor.getValue().getCreatedAt());
     }
 
+    @Test
+    void importMovie_fetchesFromTmdbBeforeOpeningTransaction() {
+        when(movieRepository.findByExternalId("556")).thenReturn(Optional.empty());
+        when(externalMovieApiClient.getMovieDetails("556")).thenReturn(details("Fetched first"));
+        when(movieRepository.save(any(Movie.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.importMovie("556");
+
+        InOrder order = inOrder(externalMovieApiClient, transactionManager, movieRepository);
+        order.verify(externalMovieApiClient).getMovieDetails("556");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(movieRepository).save(any(Movie.class));
+    }
+
+    @Test
+    void importMovie_concurrentCallsForSameExternalId_shareOneFetchAndOneInsert() throws Exception {
+        int callers = 8;
+        CountDownLatch allLookedUp = new CountDownLatch(callers);
+        AtomicReference<Movie> stored = new AtomicReference<>();
+
+        when(movieRepository.findByExternalId("42")).thenAnswer(inv -> {
+            allLookedUp.countDown();
+            return Optional.ofNullable(stored.get());
+        });
+        when(externalMovieApiClient.getMovieDetails("42")).thenAnswer(inv -> {
+            assertTrue(allLookedUp.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            return details("Trending");
+        });
+        when(movieRepository.save(any(Movie.class))).thenAnswer(inv -> {
+            Movie m = inv.getArgument(0);
+            ReflectionTestUtils.setField(m, "id", 42L);
+            stored.set(m);
+            return m;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<MovieResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(pool.submit(() -> service.importMovie("42")));
+            }
+            for (Future<MovieResponse> f : futures) {
+                assertEquals(42L, f.get(5, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(externalMovieApiClient, times(1)).getMovieDetails("42");
+        verify(movieRepository, times(1)).save(any(Movie.class));
+    }
+
+    @Test
+    void importMovie_whenFetchFails_nextCallRetries() {
+        when(movieRepository.findByExternalId("13")).thenReturn(Optional.empty());
+        when(externalMovieApiClient.getMovieDetails("13"))
+                .thenThrow(new IllegalStateException("upstream down"))
+                .thenReturn(details("Retry"));
+        when(movieRepository.save(any(Movie.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        assertThrows(IllegalStateException.class, () -> service.importMovie("13"));
+        MovieResponse res = service.importMovie("13");
+
+        assertEquals("Retry", res.getTitle());
+        verify(externalMovieApiClient, times(2)).getMovieDetails("13");
+    }
+
     @Test
     void getMovieResponse_whenNotFound_throwsNotFoundException() {
         when(movieRepository.findById(999L)).thenReturn(Optional.empty());
@@ -164,4 +338,12 @@ class MovieCatalogServiceTest {
         NotFoundException ex = assertThrows(NotFoundException.class, () -> service.getMovieResponse(999L));
         assertEquals("Movie not found", ex.getMessage());
     }
+
+    private static MovieSearchItem item(String externalId, String title) {
+        return new MovieSearchItem(externalId, title, null, null, null);
+    }
+
+    private static TmdbMovie details(String title) {
+        return new TmdbMovie(null, title, null, null, null, null);
+    }
 }
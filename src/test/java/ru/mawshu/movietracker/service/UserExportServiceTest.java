@@ -0,0 +1,178 @@
+package ru.mawshu.movietracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.MovieResponse;
+import ru.mawshu.movietracker.dto.UserMovieResponse;
+import ru.mawshu.movietracker.dto.WatchlistItemResponse;
+import ru.mawshu.movietracker.exception.NotFoundException;
+import ru.mawshu.movietracker.exception.TooManyRequestsException;
+import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserRepository;
+import ru.mawshu.movietracker.repository.WatchlistRepository;
+import ru.mawshu.movietracker.repository.WatchlistRepositoryCustom.WatchlistExportRow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Mock UserRepository userRepository;
+    @Mock UserMovieRepository userMovieRepository;
+    @Mock WatchlistRepository watchlistRepository;
+    @Mock PlatformTransactionManager transactionManager;
+
+    ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    UserExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserExportService(userRepository, userMovieRepository, watchlistRepository,
+                objectMapper, transactionManager, 1);
+    }
+
+    @Test
+    void export_whenUserMissing_failsBeforeStreaming() {
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.export(1L, UserExportService.Format.JSON));
+        verifyNoInteractions(userMovieRepository, watchlistRepository);
+    }
+
+    @Test
+    void export_whenAllSlotsBusy_rejects_untilRunningExportFinishes() throws Exception {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        StreamingResponseBody running = service.export(1L, UserExportService.Format.NDJSON);
+        assertThrows(TooManyRequestsException.class, () -> service.export(1L, UserExportService.Format.NDJSON));
+
+        running.writeTo(new ByteArrayOutputStream());
+        assertNotNull(service.export(1L, UserExportService.Format.NDJSON));
+    }
+
+    @Test
+    void writeExport_json_groupsItemsUnderTheirWatchlist() throws Exception {
+        stubSmallDataset();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeExport(1L, UserExportService.Format.JSON, out);
+
+        JsonNode root = objectMapper.readTree(out.toByteArray());
+        assertEquals(1, root.get("userId").asInt());
+        assertEquals(2, root.get("library").size());
+        assertEquals("Alien", root.get("library").get(0).get("movie").get("title").asText());
+
+        JsonNode watchlists = root.get("watchlists");
+        assertEquals(2, watchlists.size());
+        assertEquals("Favourites", watchlists.get(0).get("title").asText());
+        assertEquals(2, watchlists.get(0).get("items").size());
+        assertEquals(2, watchlists.get(0).get("items").get(1).get("position").asInt());
+        assertEquals(0, watchlists.get(1).get("items").size());
+    }
+
+    @Test
+    void writeExport_ndjson_writesOneTypedRecordPerLine() throws Exception {
+        stubSmallDataset();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeExport(1L, UserExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(6, lines.length);
+        assertEquals("library", objectMapper.readTree(lines[0]).get("type").asText());
+        assertEquals("watchlist", objectMapper.readTree(lines[2]).get("type").asText());
+        JsonNode item = objectMapper.readTree(lines[3]);
+        assertEquals("watchlistItem", item.get("type").asText());
+        assertEquals(10, item.get("watchlistId").asInt());
+        assertEquals("watchlist", objectMapper.readTree(lines[5]).get("type").asText());
+    }
+
+    @Test
+    void writeExport_largeLibrary_isWrittenOutAsRowsArrive() throws Exception {
+        int rows = 300_000;
+        int minRowBytes = 100;
+        CountingOutputStream out = new CountingOutputStream();
+
+        // Rows are generated on the fly, like a JDBC cursor. At every checkpoint nearly everything
+        // produced so far must already have reached the output stream; an implementation that
+        // collected rows or buffered the document would fall behind by megabytes.
+        doAnswer(inv -> {
+            Consumer<UserMovieResponse> consumer = inv.getArgument(1);
+            for (int i = 0; i < rows; i++) {
+                consumer.accept(entry(i, "Movie " + i));
+                if (i > 0 && i % 10_000 == 0) {
+                    long lag = (long) i * minRowBytes - out.count;
+                    assertTrue(lag < 64 * 1024, "output lags " + lag + " bytes behind at row " + i);
+                }
+            }
+            return null;
+        }).when(userMovieRepository).streamLibrary(eq(1L), any());
+
+        service.writeExport(1L, UserExportService.Format.NDJSON, out);
+
+        assertTrue(out.count > (long) rows * minRowBytes);
+    }
+
+    private void stubSmallDataset() {
+        doAnswer(inv -> {
+            Consumer<UserMovieResponse> consumer = inv.getArgument(1);
+            consumer.accept(entry(1, "Alien"));
+            consumer.accept(entry(2, "Brazil"));
+            return null;
+        }).when(userMovieRepository).streamLibrary(eq(1L), any());
+        doAnswer(inv -> {
+            Consumer<WatchlistExportRow> consumer = inv.getArgument(1);
+            consumer.accept(new WatchlistExportRow(10L, "Favourites", null, T, item(100, 1, "Alien")));
+            consumer.accept(new WatchlistExportRow(10L, "Favourites", null, T, item(101, 2, "Brazil")));
+            consumer.accept(new WatchlistExportRow(11L, "Empty", "nothing yet", T, null));
+            return null;
+        }).when(watchlistRepository).streamUserWatchlists(eq(1L), any());
+    }
+
+    private static UserMovieResponse entry(long id, String title) {
+        return new UserMovieResponse(id, new MovieResponse(id, "ext-" + id, title, 1999, 120, null, null),
+                WatchStatus.WATCHED, 8, true, T, T, T);
+    }
+
+    private static WatchlistItemResponse item(long id, int position, String title) {
+        return new WatchlistItemResponse(id, position, T, new MovieResponse(id, "ext-" + id, title, null, null, null, null));
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
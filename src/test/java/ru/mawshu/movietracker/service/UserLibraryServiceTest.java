@@ -7,14 +7,22 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.mawshu.movietracker.domain.Movie;
 import ru.mawshu.movietracker.domain.User;
 import ru.mawshu.movietracker.domain.UserMovie;
 import ru.mawshu.movietracker.domain.WatchStatus;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.LibraryChangesResponse;
+import ru.mawshu.movietracker.dto.LibraryQuery;
+import ru.mawshu.movietracker.dto.LibraryTombstone;
+import ru.mawshu.movietracker.dto.MovieMembershipResponse;
+import ru.mawshu.movietracker.dto.MovieResponse;
 import ru.mawshu.movietracker.dto.UserMovieResponse;
 import ru.mawshu.movietracker.exception.NotFoundException;
 import ru.mawshu.movietracker.repository.MovieRepository;
 import ru.mawshu.movietracker.repository.UserMovieRepository;
+import ru.mawshu.movietracker.repository.UserMovieRepositoryCustom;
 import ru.mawshu.movietracker.repository.UserRepository;
 
 import java.time.LocalDateTime;
@@ -31,12 +39,15 @@ class UserLibraryServiceTest {
     @Mock MovieRepository movieRepository;
     @Mock UserMovieRepository userMovieRepository;
     @Mock MovieCatalogService movieCatalogService;
+    @Mock LibraryMembershipIndex membershipIndex;
+    @Mock PlatformTransactionManager transactionManager;
 
     UserLibraryService service;
 
     @BeforeEach
     void setUp() {
-        service = new UserLibraryService(userRepository, movieRepository, userMovieRepository, movieCatalogService);
+        service = new UserLibraryService(userRepository, movieRepository, userMovieRepository, movieCatalogService, membershipIndex,
+                transactionManager);
     }
 
     // ----- addOrUpdateUserMovie -----
@@ -142,35 +153,31 @@ class UserLibraryServiceTest {
 
     @Test
     void getUserMovies_whenUserNotFound_throws() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(false);
 
-        NotFoundException ex = assertThrows(NotFoundException.class, () -> service.getUserMovies(1L));
+        NotFoundException ex = assertThrows(NotFoundException.class,
+                () -> service.getUserMovies(1L, new LibraryQuery()));
         assertEquals("User not found", ex.getMessage());
+        verifyNoInteractions(userMovieRepository);
     }
 
     @Test
-    void getUserMovies_success_mapsList() {
-        User u = new User(); ReflectionTestUtils.setField(u, "id", 1L);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(u));
-
-        Movie m = new Movie();
-        ReflectionTestUtils.setField(m, "id", 100L);
-        m.setExternalId("10");
-        m.setTitle("T");
-
-        UserMovie um = new UserMovie();
-        ReflectionTestUtils.setField(um, "id", 55L);
-        um.setMovie(m);
-        um.setStatus(WatchStatus.PLANNED);
-        um.setLiked(false);
-
-        when(userMovieRepository.findByUserId(1L)).thenReturn(List.of(um));
-
-        List<UserMovieResponse> res = service.getUserMovies(1L);
-
-        assertEquals(1, res.size());
-        assertEquals(55L, res.get(0).getId());
-        assertEquals("10", res.get(0).getMovie().getExternalId());
+    void getUserMovies_success_returnsProjectedPage() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        LibraryQuery query = new LibraryQuery();
+        UserMovieResponse row = new UserMovieResponse(55L,
+                new MovieResponse(100L, "10", "T", null, null, null, null),
+                WatchStatus.PLANNED, null, false, null, null, null);
+        when(userMovieRepository.findLibraryPage(1L, query)).thenReturn(new CursorPage<>(List.of(row), "next"));
+
+        CursorPage<UserMovieResponse> res = service.getUserMovies(1L, query);
+
+        assertEquals(1, res.getItems().size());
+        assertEquals(55L, res.getItems().get(0).getId());
+        assertEquals("10", res.getItems().get(0).getMovie().getExternalId());
+        assertEquals("next", res.getNextCursor());
+        verify(userMovieRepository, never()).findByUserId(any());
     }
 
     // ----- updateStatus / updateRating / updateLiked / delete -----
@@ -236,6 +243,7 @@ class UserLibraryServiceTest {
         um.setMovie(m);
 
         when(userMovieRepository.findByIdAndUserId(10L, 1L)).thenReturn(Optional.of(um));
+        when(userMovieRepository.nextLibraryVersion(1L)).thenReturn(7L);
         when(userMovieRepository.save(any(UserMovie.class))).thenAnswer(inv -> inv.getArgument(0));
 
         UserMovieResponse res = service.updateRating(1L, 10L, 8);
@@ -244,6 +252,7 @@ class UserLibraryServiceTest {
         ArgumentCaptor<UserMovie> captor = ArgumentCaptor.forClass(UserMovie.class);
         verify(userMovieRepository).save(captor.capture());
         assertEquals(8, captor.getValue().getRating());
+        assertEquals(7L, captor.getValue().getChangeVersion());
     }
 
     @Test
@@ -276,12 +285,90 @@ class UserLibraryServiceTest {
 
     @Test
     void deleteUserMovie_whenFound_deletes() {
+        Movie m = new Movie();
+        ReflectionTestUtils.setField(m, "id", 100L);
         UserMovie um = new UserMovie();
+        ReflectionTestUtils.setField(um, "id", 10L);
+        um.setMovie(m);
         when(userMovieRepository.findByIdAndUserId(10L, 1L)).thenReturn(Optional.of(um));
+        when(userMovieRepository.nextLibraryVersion(1L)).thenReturn(8L);
 
         service.deleteUserMovie(1L, 10L);
 
         verify(userMovieRepository).delete(um);
+        verify(userMovieRepository).insertTombstone(eq(1L), eq(10L), eq(100L), eq(8L), any(LocalDateTime.class));
+        verify(membershipIndex).invalidate(1L);
+    }
+
+    // ----- getChanges -----
+
+    @Test
+    void getChanges_returnsUpsertsAndTombstones_withLibraryVersionAsNextSince() {
+        UserMovieResponse changed = mock(UserMovieResponse.class);
+        LibraryTombstone deleted = new LibraryTombstone(10L, 100L, LocalDateTime.of(2024, 1, 2, 0, 0));
+        when(userMovieRepository.findChangeCursor(1L))
+                .thenReturn(Optional.of(new UserMovieRepositoryCustom.ChangeCursor(12L, 3L)));
+        when(userMovieRepository.findChangedSince(1L, 5L)).thenReturn(List.of(changed));
+        when(userMovieRepository.findTombstonesSince(1L, 5L)).thenReturn(List.of(deleted));
+
+        LibraryChangesResponse res = service.getChanges(1L, 5L);
+
+        assertEquals(List.of(changed), res.getUpserted());
+        assertEquals(List.of(deleted), res.getDeleted());
+        assertEquals(12L, res.getNextSince());
+        assertFalse(res.isResyncRequired());
+    }
+
+    @Test
+    void getChanges_cursorBelowPrunedFloor_orAheadOfLibrary_requiresResync() {
+        when(userMovieRepository.findChangeCursor(1L))
+                .thenReturn(Optional.of(new UserMovieRepositoryCustom.ChangeCursor(12L, 3L)));
+
+        for (long since : new long[]{2L, 13L}) {
+            LibraryChangesResponse res = service.getChanges(1L, since);
+
+            assertTrue(res.isResyncRequired());
+            assertEquals(0L, res.getNextSince());
+            assertTrue(res.getUpserted().isEmpty());
+        }
+        verify(userMovieRepository, never()).findChangedSince(anyLong(), anyLong());
+    }
+
+    @Test
+    void getChanges_fromZero_isAFullSync_evenAfterPruning() {
+        when(userMovieRepository.findChangeCursor(1L))
+                .thenReturn(Optional.of(new UserMovieRepositoryCustom.ChangeCursor(12L, 3L)));
+
+        LibraryChangesResponse res = service.getChanges(1L, 0L);
+
+        assertFalse(res.isResyncRequired());
+        verify(userMovieRepository).findChangedSince(1L, 0L);
+    }
+
+    @Test
+    void getChanges_unknownUser_throws() {
+        when(userMovieRepository.findChangeCursor(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.getChanges(1L, 0L));
+        verify(userMovieRepository, never()).findChangedSince(anyLong(), anyLong());
+    }
+
+    // ----- getMembership -----
+
+    @Test
+    void getMembership_answersFromIndex() {
+        LibraryMembershipIndex.Membership membership = mock(LibraryMembershipIndex.Membership.class);
+        when(membershipIndex.get(1L)).thenReturn(membership);
+        when(membership.status(100L)).thenReturn(WatchStatus.WATCHED);
+        when(membership.watchlistsContaining(100L)).thenReturn(List.of(7L));
+        when(membership.watchlistsContaining(200L)).thenReturn(List.of());
+
+        List<MovieMembershipResponse> res = service.getMembership(1L, List.of(100L, 200L));
+
+        assertEquals(WatchStatus.WATCHED, res.get(0).getStatus());
+        assertEquals(List.of(7L), res.get(0).getWatchlistIds());
+        assertNull(res.get(1).getStatus());
+        verifyNoInteractions(userMovieRepository);
     }
 
     @Test
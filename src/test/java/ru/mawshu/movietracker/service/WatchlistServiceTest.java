@@ -7,12 +7,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.mawshu.movietracker.domain.Movie;
 import ru.mawshu.movietracker.domain.User;
 import ru.mawshu.movietracker.domain.Watchlist;
 import ru.mawshu.movietracker.domain.WatchlistItem;
+import ru.mawshu.movietracker.dto.BatchImportResponse;
+import ru.mawshu.movietracker.dto.BatchImportResult;
+import ru.mawshu.movietracker.dto.CursorPage;
+import ru.mawshu.movietracker.dto.WatchlistBatchAddResponse;
 import ru.mawshu.movietracker.dto.WatchlistItemResponse;
+import ru.mawshu.movietracker.dto.WatchlistItemsQuery;
 import ru.mawshu.movietracker.dto.WatchlistResponse;
+import ru.mawshu.movietracker.dto.WatchlistSummaryResponse;
+import ru.mawshu.movietracker.exception.BadRequestException;
 import ru.mawshu.movietracker.exception.ConflictException;
 import ru.mawshu.movietracker.exception.NotFoundException;
 import ru.mawshu.movietracker.repository.UserRepository;
@@ -22,6 +30,7 @@ import ru.mawshu.movietracker.repository.WatchlistRepository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,12 +42,17 @@ class WatchlistServiceTest {
     @Mock WatchlistItemRepository watchlistItemRepository;
     @Mock UserRepository userRepository;
     @Mock MovieCatalogService movieCatalogService;
+    @Mock MovieBatchImportService movieBatchImportService;
+    @Mock WatchlistRebalancer watchlistRebalancer;
+    @Mock LibraryMembershipIndex membershipIndex;
+    @Mock PlatformTransactionManager transactionManager;
 
     WatchlistService service;
 
     @BeforeEach
     void setUp() {
-        service = new WatchlistService(watchlistRepository, watchlistItemRepository, userRepository, movieCatalogService);
+        service = new WatchlistService(watchlistRepository, watchlistItemRepository, userRepository, movieCatalogService,
+                movieBatchImportService, watchlistRebalancer, membershipIndex, transactionManager);
     }
 
     // ---------------- createWatchlist ----------------
@@ -112,11 +126,22 @@ class WatchlistServiceTest {
         assertEquals(2, res.get(0).getItems().get(1).getPosition());
     }
 
+    @Test
+    void getUserWatchlistSummaries_usesSingleSummaryQuery() {
+        List<WatchlistSummaryResponse> summaries = List.of(
+                new WatchlistSummaryResponse(10L, "L", null, LocalDateTime.now(), 3, List.of("p")));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(watchlistRepository.findSummariesByUserId(eq(1L), anyInt())).thenReturn(summaries);
+
+        assertSame(summaries, service.getUserWatchlistSummaries(1L));
+        verify(watchlistRepository, never()).findByUserId(anyLong());
+    }
+
     // ---------------- addMovieToWatchlist ----------------
 
     @Test
     void addMovieToWatchlist_whenWatchlistNotFound_throws() {
-        when(watchlistRepository.findById(10L)).thenReturn(Optional.empty());
+        when(watchlistRepository.existsById(10L)).thenReturn(false);
 
         NotFoundException ex = assertThrows(NotFoundException.class,
                 () -> service.addMovieToWatchlist(10L, "x"));
@@ -130,6 +155,7 @@ class WatchlistServiceTest {
         Watchlist w = watchlist(10L, user(1L), "t", "d");
         Movie m = movie(100L, "x", "Film");
 
+        when(watchlistRepository.existsById(10L)).thenReturn(true);
         when(watchlistRepository.findById(10L)).thenReturn(Optional.of(w));
         when(movieCatalogService.importMovieEntity("x")).thenReturn(m);
         when(watchlistItemRepository.existsByWatchlistIdAndMovieId(10L, 100L)).thenReturn(true);
@@ -141,14 +167,15 @@ class WatchlistServiceTest {
     }
 
     @Test
-    void addMovieToWatchlist_whenMaxPositionNull_setsPosition1_andSetsAddedAt() {
+    void addMovieToWatchlist_takesPositionFromCounter_andSetsAddedAt() {
         Watchlist w = watchlist(10L, user(1L), "t", "d");
         Movie m = movie(100L, "x", "Film");
 
+        when(watchlistRepository.existsById(10L)).thenReturn(true);
         when(watchlistRepository.findById(10L)).thenReturn(Optional.of(w));
         when(movieCatalogService.importMovieEntity("x")).thenReturn(m);
         when(watchlistItemRepository.existsByWatchlistIdAndMovieId(10L, 100L)).thenReturn(false);
-        when(watchlistItemRepository.findMaxPosition(10L)).thenReturn(null);
+        when(watchlistRepository.nextPosition(10L, WatchlistService.POSITION_GAP)).thenReturn(WatchlistService.POSITION_GAP);
 
         when(watchlistItemRepository.save(any(WatchlistItem.class))).thenAnswer(inv -> {
             WatchlistItem it = inv.getArgument(0);
@@ -158,30 +185,83 @@ class WatchlistServiceTest {
 
         WatchlistItemResponse res = service.addMovieToWatchlist(10L, "x");
 
-        assertEquals(1, res.getPosition());
+        assertEquals(WatchlistService.POSITION_GAP, res.getPosition());
         assertNotNull(res.getAddedAt());
 
         ArgumentCaptor<WatchlistItem> captor = ArgumentCaptor.forClass(WatchlistItem.class);
         verify(watchlistItemRepository).save(captor.capture());
-        assertEquals(1, captor.getValue().getPosition());
+        assertEquals(WatchlistService.POSITION_GAP, captor.getValue().getPosition());
         assertNotNull(captor.getValue().getAddedAt());
         assertSame(m, captor.getValue().getMovie());
         assertSame(w, captor.getValue().getWatchlist());
     }
 
     @Test
-    void addMovieToWatchlist_whenMaxPosition7_setsPosition8() {
+    void addMovieToWatchlist_usesCounterValueEvenWhenItemsWereRemoved() {
         Watchlist w = watchlist(10L, user(1L), "t", "d");
         Movie m = movie(100L, "x", "Film");
 
+        when(watchlistRepository.existsById(10L)).thenReturn(true);
         when(watchlistRepository.findById(10L)).thenReturn(Optional.of(w));
         when(movieCatalogService.importMovieEntity("x")).thenReturn(m);
         when(watchlistItemRepository.existsByWatchlistIdAndMovieId(10L, 100L)).thenReturn(false);
-        when(watchlistItemRepository.findMaxPosition(10L)).thenReturn(7);
+        when(watchlistRepository.nextPosition(10L, WatchlistService.POSITION_GAP)).thenReturn(7 * WatchlistService.POSITION_GAP);
         when(watchlistItemRepository.save(any(WatchlistItem.class))).thenAnswer(inv -> inv.getArgument(0));
 
         WatchlistItemResponse res = service.addMovieToWatchlist(10L, "x");
-        assertEquals(8, res.getPosition());
+        assertEquals(7 * WatchlistService.POSITION_GAP, res.getPosition());
+    }
+
+    // ---------------- addMoviesToWatchlist ----------------
+
+    @Test
+    void addMoviesToWatchlist_whenWatchlistNotFound_throws() {
+        when(watchlistRepository.existsById(10L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.addMoviesToWatchlist(10L, List.of("x")));
+        verifyNoInteractions(movieBatchImportService);
+    }
+
+    @Test
+    void addMoviesToWatchlist_skipsPresentAndRepeated_andInsertsContiguousRangeOnce() {
+        Movie m1 = movie(100L, "a", "A");
+        Movie m3 = movie(300L, "c", "C");
+
+        when(watchlistRepository.existsById(10L)).thenReturn(true);
+        when(movieBatchImportService.importMovies(List.of("a", "b", "c", "a", "d"))).thenReturn(new BatchImportResponse(List.of(
+                BatchImportResult.existing("a", 100L),
+                BatchImportResult.existing("b", 200L),
+                BatchImportResult.imported("c", 300L),
+                BatchImportResult.failed("d", "404 Not Found"))));
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(watchlist(10L, user(1L), "t", "d")));
+        when(watchlistItemRepository.findMovieIdsInWatchlist(eq(10L), anyCollection())).thenReturn(Set.of(200L));
+        when(watchlistRepository.nextPosition(10L, 2 * WatchlistService.POSITION_GAP)).thenReturn(5 * WatchlistService.POSITION_GAP);
+        when(watchlistItemRepository.findWithMovieByWatchlistIdAndMovieIdIn(10L, List.of(100L, 300L)))
+                .thenReturn(List.of(item(1L, 4 * WatchlistService.POSITION_GAP, m1), item(2L, 5 * WatchlistService.POSITION_GAP, m3)));
+
+        WatchlistBatchAddResponse res = service.addMoviesToWatchlist(10L, List.of("a", "b", "c", "a", "d"));
+
+        verify(watchlistRepository).batchInsertItems(10L, List.of(100L, 300L),
+                4 * WatchlistService.POSITION_GAP, WatchlistService.POSITION_GAP);
+        verify(watchlistItemRepository, never()).save(any());
+        assertEquals(2, res.getAdded().size());
+        assertEquals(List.of("b"), res.getSkipped());
+        assertEquals("d", res.getFailed().get(0).getExternalId());
+    }
+
+    @Test
+    void addMoviesToWatchlist_whenAllPresent_reservesNoPositions() {
+        when(watchlistRepository.existsById(10L)).thenReturn(true);
+        when(movieBatchImportService.importMovies(List.of("a"))).thenReturn(new BatchImportResponse(List.of(
+                BatchImportResult.existing("a", 100L))));
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(watchlist(10L, user(1L), "t", "d")));
+        when(watchlistItemRepository.findMovieIdsInWatchlist(eq(10L), anyCollection())).thenReturn(Set.of(100L));
+
+        WatchlistBatchAddResponse res = service.addMoviesToWatchlist(10L, List.of("a"));
+
+        assertEquals(List.of("a"), res.getSkipped());
+        verify(watchlistRepository, never()).nextPosition(anyLong(), anyInt());
+        verify(watchlistRepository, never()).batchInsertItems(anyLong(), anyList(), anyInt(), anyInt());
     }
 
     // ---------------- removeWatchlistItem / deleteWatchlist ----------------
@@ -198,14 +278,15 @@ class WatchlistServiceTest {
 
     @Test
     void removeWatchlistItem_success_deletes() {
-        WatchlistItem item = new WatchlistItem();
-        setId(item, 5L);
+        WatchlistItem item = item(5L, 1024, movie(100L, "ext", "T"));
+        item.setWatchlist(watchlist(10L, user(1L), "L", null));
 
         when(watchlistItemRepository.findByIdAndWatchlistId(5L, 10L)).thenReturn(Optional.of(item));
 
         service.removeWatchlistItem(10L, 5L);
 
         verify(watchlistItemRepository).delete(item);
+        verify(membershipIndex).invalidate(1L);
     }
 
     @Test
@@ -232,83 +313,189 @@ class WatchlistServiceTest {
 
     @Test
     void reorderItems_whenWatchlistNotFound_throws() {
-        when(watchlistRepository.findById(10L)).thenReturn(Optional.empty());
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.empty());
 
         NotFoundException ex = assertThrows(NotFoundException.class,
                 () -> service.reorderItems(10L, List.of(1L)));
 
         assertEquals("Watchlist not found", ex.getMessage());
+        verify(watchlistRepository, never()).reorderItems(anyLong(), anyList(), anyInt());
     }
 
     @Test
-    void reorderItems_whenItemNotFound_throwsWithIdInMessage() {
+    void reorderItems_whenIdsDoNotMatchWatchlistItems_throwsConflict() {
         Watchlist w = watchlist(10L, user(1L), "t", "d");
 
-        when(watchlistRepository.findById(10L)).thenReturn(Optional.of(w));
-        when(watchlistItemRepository.findByIdAndWatchlistId(1L, 10L)).thenReturn(Optional.empty());
-
-        NotFoundException ex = assertThrows(NotFoundException.class,
-                () -> service.reorderItems(10L, List.of(1L)));
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findIdsByWatchlistId(10L)).thenReturn(List.of(1L, 2L, 3L));
 
-        assertEquals("Watchlist item not found: 1", ex.getMessage());
+        assertThrows(ConflictException.class, () -> service.reorderItems(10L, List.of(2L, 1L)));
+        assertThrows(ConflictException.class, () -> service.reorderItems(10L, List.of(3L, 2L, 1L, 4L)));
+        verify(watchlistRepository, never()).reorderItems(anyLong(), anyList(), anyInt());
     }
 
     @Test
-    void reorderItems_success_updatesPositionsInOrder() {
+    void reorderItems_whenIdsRepeat_throwsBadRequest() {
         Watchlist w = watchlist(10L, user(1L), "t", "d");
 
-        WatchlistItem i1 = new WatchlistItem(); setId(i1, 1L); i1.setPosition(99);
-        WatchlistItem i2 = new WatchlistItem(); setId(i2, 2L); i2.setPosition(99);
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
 
-        when(watchlistRepository.findById(10L)).thenReturn(Optional.of(w));
-        when(watchlistItemRepository.findByIdAndWatchlistId(1L, 10L)).thenReturn(Optional.of(i1));
-        when(watchlistItemRepository.findByIdAndWatchlistId(2L, 10L)).thenReturn(Optional.of(i2));
+        assertThrows(BadRequestException.class, () -> service.reorderItems(10L, List.of(1L, 1L)));
+        verify(watchlistRepository, never()).reorderItems(anyLong(), anyList(), anyInt());
+    }
+
+    @Test
+    void reorderItems_success_updatesAllPositionsInOneStatement() {
+        Watchlist w = watchlist(10L, user(1L), "t", "d");
+
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findIdsByWatchlistId(10L)).thenReturn(List.of(1L, 2L));
 
         service.reorderItems(10L, List.of(2L, 1L));
 
-        assertEquals(2, i1.getPosition());
-        assertEquals(1, i2.getPosition());
+        verify(watchlistRepository).reorderItems(10L, List.of(2L, 1L), WatchlistService.POSITION_GAP);
+        verify(watchlistItemRepository, never()).findByIdAndWatchlistId(anyLong(), anyLong());
+    }
+
+    // ---------------- moveItem ----------------
+
+    @Test
+    void moveItem_withoutNeighbours_throwsBadRequest() {
+        assertThrows(BadRequestException.class, () -> service.moveItem(10L, 1L, null, null));
+        assertThrows(BadRequestException.class, () -> service.moveItem(10L, 1L, 1L, null));
+        verifyNoInteractions(watchlistRepository);
+    }
+
+    @Test
+    void moveItem_afterNeighbour_takesMidpoint_andUpdatesOnlyThatRow() {
+        Watchlist w = watchlist(10L, user(1L), "t", "d");
+        WatchlistItem moved = item(3L, 1024, movie(100L, "x", "Film"));
+
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findPosition(3L, 10L)).thenReturn(Optional.of(3072));
+        when(watchlistItemRepository.findPosition(1L, 10L)).thenReturn(Optional.of(1024));
+        when(watchlistItemRepository.findNextPosition(10L, 1024, 3L)).thenReturn(2048);
+        when(watchlistItemRepository.findByIdAndWatchlistId(3L, 10L)).thenReturn(Optional.of(moved));
+
+        service.moveItem(10L, 3L, 1L, null);
+
+        verify(watchlistItemRepository).updatePosition(3L, 1536);
+        verify(watchlistRepository, never()).reorderItems(anyLong(), anyList(), anyInt());
+        verifyNoInteractions(watchlistRebalancer);
+    }
+
+    @Test
+    void moveItem_beforeFirstItem_goesOneGapAbove() {
+        Watchlist w = watchlist(10L, user(1L), "t", "d");
+
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findPosition(3L, 10L)).thenReturn(Optional.of(3072));
+        when(watchlistItemRepository.findPosition(1L, 10L)).thenReturn(Optional.of(1024));
+        when(watchlistItemRepository.findPreviousPosition(10L, 1024, 3L)).thenReturn(null);
+        when(watchlistItemRepository.findByIdAndWatchlistId(3L, 10L))
+                .thenReturn(Optional.of(item(3L, 0, movie(100L, "x", "Film"))));
+
+        service.moveItem(10L, 3L, null, 1L);
+
+        verify(watchlistItemRepository).updatePosition(3L, 0);
+    }
+
+    @Test
+    void moveItem_whenNeighboursNotAdjacent_throwsConflict() {
+        Watchlist w = watchlist(10L, user(1L), "t", "d");
+
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findPosition(3L, 10L)).thenReturn(Optional.of(3072));
+        when(watchlistItemRepository.findPosition(1L, 10L)).thenReturn(Optional.of(1024));
+        when(watchlistItemRepository.findPosition(4L, 10L)).thenReturn(Optional.of(4096));
+        when(watchlistItemRepository.findNextPosition(10L, 1024, 3L)).thenReturn(2048);
+
+        assertThrows(ConflictException.class, () -> service.moveItem(10L, 3L, 1L, 4L));
+        verify(watchlistItemRepository, never()).updatePosition(anyLong(), anyInt());
+    }
+
+    @Test
+    void moveItem_whenGapIsTight_schedulesBackgroundRebalance() {
+        Watchlist w = watchlist(10L, user(1L), "t", "d");
+
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findPosition(3L, 10L)).thenReturn(Optional.of(3072));
+        when(watchlistItemRepository.findPosition(1L, 10L)).thenReturn(Optional.of(1024));
+        when(watchlistItemRepository.findNextPosition(10L, 1024, 3L)).thenReturn(1034);
+        when(watchlistItemRepository.findByIdAndWatchlistId(3L, 10L))
+                .thenReturn(Optional.of(item(3L, 1029, movie(100L, "x", "Film"))));
+
+        service.moveItem(10L, 3L, 1L, null);
+
+        verify(watchlistItemRepository).updatePosition(3L, 1029);
+        verify(watchlistRebalancer).schedule(10L);
+        verify(watchlistRebalancer, never()).rebalance(anyLong());
+    }
+
+    @Test
+    void moveItem_whenGapIsExhausted_rebalancesInlineAndRetries() {
+        Watchlist w = watchlist(10L, user(1L), "t", "d");
+
+        when(watchlistRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(w));
+        when(watchlistItemRepository.findPosition(3L, 10L)).thenReturn(Optional.of(3072));
+        when(watchlistItemRepository.findPosition(1L, 10L)).thenReturn(Optional.of(1024), Optional.of(1024));
+        when(watchlistItemRepository.findNextPosition(10L, 1024, 3L)).thenReturn(1025, 2048);
+        when(watchlistItemRepository.findByIdAndWatchlistId(3L, 10L))
+                .thenReturn(Optional.of(item(3L, 1536, movie(100L, "x", "Film"))));
+
+        service.moveItem(10L, 3L, 1L, null);
+
+        verify(watchlistRebalancer).rebalance(10L);
+        verify(watchlistItemRepository).updatePosition(3L, 1536);
     }
 
     // ---------------- getWatchlist ----------------
 
     @Test
     void getWatchlist_whenNotFound_throws() {
-        when(watchlistRepository.findByIdWithItems(10L)).thenReturn(Optional.empty());
+        when(watchlistRepository.findById(10L)).thenReturn(Optional.empty());
 
         NotFoundException ex = assertThrows(NotFoundException.class, () -> service.getWatchlist(10L));
         assertEquals("Watchlist not found", ex.getMessage());
     }
 
     @Test
-    void getWatchlist_success_sortsItemsAndMapsMovie() {
-        User u = user(1L);
+    void getWatchlist_success_returnsHeaderAndFirstPageOnly() {
+        Watchlist w = watchlist(10L, user(1L), "L", "D");
+        WatchlistItemResponse first = new WatchlistItemResponse(501L, 1024, LocalDateTime.now(), null);
 
-        Movie m = movie(100L, "ext", "Film");
-        m.setRuntimeMinutes(90);
-        m.setPosterUrl("p");
-        m.setOverview("o");
-
-        WatchlistItem itPos2 = item(501L, 2, m);
-        WatchlistItem itPos1 = item(502L, 1, m);
-
-        Watchlist w = watchlist(10L, u, "L", "D");
-        w.getItems().add(itPos2);
-        w.getItems().add(itPos1);
-
-        when(watchlistRepository.findByIdWithItems(10L)).thenReturn(Optional.of(w));
+        when(watchlistRepository.findById(10L)).thenReturn(Optional.of(w));
+        when(watchlistRepository.findItemsPage(10L, null, WatchlistService.FIRST_PAGE_SIZE))
+                .thenReturn(new CursorPage<>(List.of(first), "next"));
 
         WatchlistResponse res = service.getWatchlist(10L);
 
         assertEquals(10L, res.getId());
         assertEquals(1L, res.getUserId());
-        assertEquals(2, res.getItems().size());
-        assertEquals(1, res.getItems().get(0).getPosition());
-        assertEquals(2, res.getItems().get(1).getPosition());
+        assertEquals("L", res.getTitle());
+        assertEquals(List.of(first), res.getItems());
+        assertEquals("next", res.getNextItemsCursor());
+    }
+
+    @Test
+    void getWatchlistItems_whenWatchlistMissing_throws() {
+        when(watchlistRepository.existsById(10L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.getWatchlistItems(10L, new WatchlistItemsQuery()));
+        verify(watchlistRepository, never()).findItemsPage(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    void getWatchlistItems_passesCursorAndLimitThrough() {
+        WatchlistItemsQuery query = new WatchlistItemsQuery();
+        query.setCursor("abc");
+        query.setLimit(20);
+        CursorPage<WatchlistItemResponse> page = new CursorPage<>(List.of(), null);
+
+        when(watchlistRepository.existsById(10L)).thenReturn(true);
+        when(watchlistRepository.findItemsPage(10L, "abc", 20)).thenReturn(page);
 
-        assertEquals(100L, res.getItems().get(0).getMovie().getId());
-        assertEquals("ext", res.getItems().get(0).getMovie().getExternalId());
-        assertEquals("Film", res.getItems().get(0).getMovie().getTitle());
+        assertSame(page, service.getWatchlistItems(10L, query));
     }
 
     // ---------------- helpers ----------------